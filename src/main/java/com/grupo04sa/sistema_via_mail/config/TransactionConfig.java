@@ -0,0 +1,40 @@
+package com.grupo04sa.sistema_via_mail.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Plantillas de transacción compartidas
+ */
+@Configuration
+public class TransactionConfig {
+
+    @Value("${command.execution.timeout:30}")
+    private int timeoutSegundos;
+
+    /**
+     * Plantilla sin límite (envío del outbox y demás tareas internas)
+     */
+    @Bean
+    @Primary
+    public TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Transacción externa de un comando (idempotencia y outbox) con el límite
+     * de command.execution.timeout; la del ejecutor se une a esta
+     */
+    @Bean
+    public TransactionTemplate transaccionComando(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        if (timeoutSegundos > 0) {
+            template.setTimeout(timeoutSegundos);
+        }
+        return template;
+    }
+}
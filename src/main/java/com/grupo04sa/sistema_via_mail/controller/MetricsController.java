@@ -0,0 +1,31 @@
+package com.grupo04sa.sistema_via_mail.controller;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.grupo04sa.sistema_via_mail.service.MetricsService;
+
+/**
+ * Expone las métricas operativas del sistema en formato JSON
+ */
+@RestController
+@RequestMapping("/metricas")
+public class MetricsController {
+
+    private final MetricsService metricsService;
+
+    public MetricsController(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * GET /metricas - Latencias y contadores acumulados desde el arranque
+     */
+    @GetMapping
+    public Map<String, Object> obtenerMetricas() {
+        return metricsService.obtenerResumen();
+    }
+}
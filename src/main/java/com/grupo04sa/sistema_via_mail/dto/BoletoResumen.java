@@ -0,0 +1,22 @@
+package com.grupo04sa.sistema_via_mail.dto;
+
+import java.time.LocalDateTime;
+
+import com.grupo04sa.sistema_via_mail.model.Boleto;
+import com.grupo04sa.sistema_via_mail.model.Usuario;
+
+/**
+ * Proyección de Boleto para comandos de lectura
+ * Origen, destino y cliente salen del mismo SELECT (sin cargar Venta ni Usuario)
+ */
+public record BoletoResumen(Long id, String asiento, LocalDateTime createdAt, String origen, String destino,
+        String clienteNombre, String clienteApellido) {
+
+    public static BoletoResumen de(Boleto boleto) {
+        String origen = boleto.getRuta() != null ? boleto.getRuta().getOrigen() : null;
+        String destino = boleto.getRuta() != null ? boleto.getRuta().getDestino() : null;
+        Usuario cliente = boleto.getVenta() != null ? boleto.getVenta().getUsuario() : null;
+        return new BoletoResumen(boleto.getId(), boleto.getAsiento(), boleto.getCreatedAt(), origen, destino,
+                cliente != null ? cliente.getNombre() : null, cliente != null ? cliente.getApellido() : null);
+    }
+}
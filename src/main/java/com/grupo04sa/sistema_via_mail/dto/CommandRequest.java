@@ -13,6 +13,7 @@ public class CommandRequest {
     private List<String> parametros = new ArrayList<>();
     private String emailRemitente;
     private String asuntoOriginal;
+    private List<CommandRequest> lote = new ArrayList<>(); // Comandos del cuerpo (solo LOTE)
 
     public CommandRequest() {
     }
@@ -60,6 +61,18 @@ public class CommandRequest {
         this.asuntoOriginal = asuntoOriginal;
     }
 
+    public List<CommandRequest> getLote() {
+        return lote;
+    }
+
+    public void setLote(List<CommandRequest> lote) {
+        this.lote = lote != null ? lote : new ArrayList<>();
+    }
+
+    public boolean esLote() {
+        return !lote.isEmpty();
+    }
+
     public static class CommandRequestBuilder {
         private String comando;
         private List<String> parametros = new ArrayList<>();
@@ -1,15 +1,18 @@
 package com.grupo04sa.sistema_via_mail.dto;
 
+import java.nio.file.Path;
+
 /**
  * DTO para respuestas de comandos que se enviarán por correo
  */
 public class CommandResponse {
 
     private String comando;
-    private String estado; // EXITOSO, ERROR
+    private String estado; // EXITOSO, ERROR, TIMEOUT
     private String mensaje;
     private String datos;
     private String mensajeError;
+    private Path adjunto; // Archivo a adjuntar (exportaciones de listados)
 
     public CommandResponse() {
     }
@@ -66,12 +69,21 @@ public class CommandResponse {
         this.mensajeError = mensajeError;
     }
 
+    public Path getAdjunto() {
+        return adjunto;
+    }
+
+    public void setAdjunto(Path adjunto) {
+        this.adjunto = adjunto;
+    }
+
     public static class CommandResponseBuilder {
         private String comando;
         private String estado;
         private String mensaje;
         private String datos;
         private String mensajeError;
+        private Path adjunto;
 
         public CommandResponseBuilder comando(String comando) {
             this.comando = comando;
@@ -98,8 +110,15 @@ public class CommandResponse {
             return this;
         }
 
+        public CommandResponseBuilder adjunto(Path adjunto) {
+            this.adjunto = adjunto;
+            return this;
+        }
+
         public CommandResponse build() {
-            return new CommandResponse(comando, estado, mensaje, datos, mensajeError);
+            CommandResponse response = new CommandResponse(comando, estado, mensaje, datos, mensajeError);
+            response.setAdjunto(adjunto);
+            return response;
         }
     }
 
@@ -0,0 +1,20 @@
+package com.grupo04sa.sistema_via_mail.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.grupo04sa.sistema_via_mail.model.Encomienda;
+
+/**
+ * Proyección de Encomienda para comandos de lectura (sin img_url)
+ */
+public record EncomiendaResumen(Long ventaId, BigDecimal peso, String nombreDestinatario, String descripcion,
+        String modalidadPago, BigDecimal montoPagadoOrigen, BigDecimal montoPagadoDestino,
+        LocalDateTime createdAt) {
+
+    public static EncomiendaResumen de(Encomienda encomienda) {
+        return new EncomiendaResumen(encomienda.getVentaId(), encomienda.getPeso(),
+                encomienda.getNombreDestinatario(), encomienda.getDescripcion(), encomienda.getModalidadPago(),
+                encomienda.getMontoPagadoOrigen(), encomienda.getMontoPagadoDestino(), encomienda.getCreatedAt());
+    }
+}
@@ -0,0 +1,18 @@
+package com.grupo04sa.sistema_via_mail.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.grupo04sa.sistema_via_mail.model.PagoVenta;
+
+/**
+ * Proyección de PagoVenta para comandos de lectura (sin qr_base64)
+ */
+public record PagoResumen(Long id, Short numCuota, BigDecimal monto, String metodoPago, String estadoPago,
+        LocalDateTime fechaPago) {
+
+    public static PagoResumen de(PagoVenta pago) {
+        return new PagoResumen(pago.getId(), pago.getNumCuota(), pago.getMonto(), pago.getMetodoPago(),
+                pago.getEstadoPago(), pago.getFechaPago());
+    }
+}
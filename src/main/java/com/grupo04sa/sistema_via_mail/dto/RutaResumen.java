@@ -0,0 +1,17 @@
+package com.grupo04sa.sistema_via_mail.dto;
+
+import com.grupo04sa.sistema_via_mail.model.Ruta;
+
+/**
+ * Proyección de Ruta para comandos de lectura
+ */
+public record RutaResumen(Long id, String origen, String destino, String nombre) {
+
+    public static RutaResumen de(Ruta ruta) {
+        return new RutaResumen(ruta.getId(), ruta.getOrigen(), ruta.getDestino(), ruta.getNombre());
+    }
+
+    public String nombreCompleto() {
+        return nombre != null ? nombre : (origen + " - " + destino);
+    }
+}
@@ -0,0 +1,22 @@
+package com.grupo04sa.sistema_via_mail.dto;
+
+import java.time.LocalDateTime;
+
+import com.grupo04sa.sistema_via_mail.model.Usuario;
+
+/**
+ * Proyección de Usuario para comandos de lectura
+ * Sin password, img_url ni preferencias: solo lo que se muestra en la respuesta
+ */
+public record UsuarioResumen(Long id, String ci, String nombre, String apellido, String rol,
+        String telefono, String correo, LocalDateTime createdAt) {
+
+    public static UsuarioResumen de(Usuario usuario) {
+        return new UsuarioResumen(usuario.getId(), usuario.getCi(), usuario.getNombre(), usuario.getApellido(),
+                usuario.getRol(), usuario.getTelefono(), usuario.getCorreo(), usuario.getCreatedAt());
+    }
+
+    public String nombreCompleto() {
+        return nombre + " " + apellido;
+    }
+}
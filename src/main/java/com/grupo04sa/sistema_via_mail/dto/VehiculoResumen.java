@@ -0,0 +1,15 @@
+package com.grupo04sa.sistema_via_mail.dto;
+
+import com.grupo04sa.sistema_via_mail.model.Vehiculo;
+
+/**
+ * Proyección de Vehiculo para comandos de lectura (sin img_url ni conductor)
+ */
+public record VehiculoResumen(Long id, String placa, String marca, String modelo, Short anio,
+        String color, String estado) {
+
+    public static VehiculoResumen de(Vehiculo vehiculo) {
+        return new VehiculoResumen(vehiculo.getId(), vehiculo.getPlaca(), vehiculo.getMarca(),
+                vehiculo.getModelo(), vehiculo.getAnio(), vehiculo.getColor(), vehiculo.getEstado());
+    }
+}
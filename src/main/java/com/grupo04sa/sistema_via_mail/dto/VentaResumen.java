@@ -0,0 +1,18 @@
+package com.grupo04sa.sistema_via_mail.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.grupo04sa.sistema_via_mail.model.Venta;
+
+/**
+ * Proyección de Venta para comandos de lectura
+ * No carga la encomienda (1:1 inverso, que en la entidad se lee siempre)
+ */
+public record VentaResumen(Long id, String tipo, BigDecimal montoTotal, String estadoPago, LocalDateTime fecha) {
+
+    public static VentaResumen de(Venta venta) {
+        return new VentaResumen(venta.getId(), venta.getTipo(), venta.getMontoTotal(), venta.getEstadoPago(),
+                venta.getFecha());
+    }
+}
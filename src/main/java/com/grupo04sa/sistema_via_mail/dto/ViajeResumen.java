@@ -0,0 +1,18 @@
+package com.grupo04sa.sistema_via_mail.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.grupo04sa.sistema_via_mail.model.Viaje;
+
+/**
+ * Proyección de Viaje para comandos de lectura (sin ruta ni vehículo)
+ */
+public record ViajeResumen(Long id, LocalDateTime fechaSalida, LocalDateTime fechaLlegada, BigDecimal precio,
+        Integer asientosTotales, String estado) {
+
+    public static ViajeResumen de(Viaje viaje) {
+        return new ViajeResumen(viaje.getId(), viaje.getFechaSalida(), viaje.getFechaLlegada(), viaje.getPrecio(),
+                viaje.getAsientosTotales(), viaje.getEstado());
+    }
+}
@@ -2,17 +2,28 @@ package com.grupo04sa.sistema_via_mail.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.grupo04sa.sistema_via_mail.dto.BoletoResumen;
 import com.grupo04sa.sistema_via_mail.model.Boleto;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface BoletoRepository extends JpaRepository<Boleto, Long> {
 
+    // Proyección para comandos de lectura: sin viaje ni venta; origen, destino y cliente en el mismo SELECT
+    String RESUMEN = "SELECT new com.grupo04sa.sistema_via_mail.dto.BoletoResumen("
+            + "b.id, b.asiento, b.createdAt, r.origen, r.destino, u.nombre, u.apellido) FROM Boleto b "
+            + "JOIN b.ruta r JOIN b.venta v JOIN v.usuario u ";
+
     List<Boleto> findByVentaId(Long ventaId);
 
     List<Boleto> findByViajeId(Long viajeId);
@@ -35,4 +46,38 @@ public interface BoletoRepository extends JpaRepository<Boleto, Long> {
             "JOIN FETCH b.viaje " +
             "WHERE b.id = :id")
     Optional<Boleto> findByIdWithDetails(@Param("id") Long id);
+
+    @Query(RESUMEN + "ORDER BY b.id")
+    List<BoletoResumen> findResumenes();
+
+    @Query(RESUMEN + "WHERE b.viaje.id = :viajeId ORDER BY b.id")
+    List<BoletoResumen> findResumenesByViajeId(@Param("viajeId") Long viajeId);
+
+    @Query(RESUMEN + "WHERE b.id = :id")
+    Optional<BoletoResumen> findResumenById(@Param("id") Long id);
+
+    // Paginación por clave: solo filas con id mayor al cursor, limitadas por el Pageable
+    @Query(RESUMEN + "WHERE b.id > :cursor ORDER BY b.id")
+    List<BoletoResumen> findDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    @Query(RESUMEN + "WHERE b.viaje.id = :viajeId AND b.id > :cursor ORDER BY b.id")
+    List<BoletoResumen> findByViajeIdDesde(@Param("viajeId") Long viajeId, @Param("cursor") Long cursor,
+            Pageable pagina);
+
+    // Exportación: recorrido completo leído por partes (fetch size) y sin copias para dirty checking
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true") })
+    @Query("SELECT b FROM Boleto b LEFT JOIN FETCH b.ruta LEFT JOIN FETCH b.venta v LEFT JOIN FETCH v.usuario "
+            + "LEFT JOIN FETCH v.encomienda "
+            + "ORDER BY b.id")
+    Stream<Boleto> streamTodos();
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true") })
+    @Query("SELECT b FROM Boleto b LEFT JOIN FETCH b.ruta LEFT JOIN FETCH b.venta v LEFT JOIN FETCH v.usuario "
+            + "LEFT JOIN FETCH v.encomienda "
+            + "WHERE b.viaje.id = :viajeId ORDER BY b.id")
+    Stream<Boleto> streamByViajeId(@Param("viajeId") Long viajeId);
 }
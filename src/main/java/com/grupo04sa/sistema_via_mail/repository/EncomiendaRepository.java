@@ -1,17 +1,27 @@
 package com.grupo04sa.sistema_via_mail.repository;
 
+import com.grupo04sa.sistema_via_mail.dto.EncomiendaResumen;
 import com.grupo04sa.sistema_via_mail.model.Encomienda;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface EncomiendaRepository extends JpaRepository<Encomienda, Long> {
 
+    // Proyección para comandos de lectura: sin img_url
+    String RESUMEN = "SELECT new com.grupo04sa.sistema_via_mail.dto.EncomiendaResumen("
+            + "e.ventaId, e.peso, e.nombreDestinatario, e.descripcion, e.modalidadPago, "
+            + "e.montoPagadoOrigen, e.montoPagadoDestino, e.createdAt) FROM Encomienda e ";
+
     List<Encomienda> findByRutaId(Long rutaId);
 
     List<Encomienda> findByViajeId(Long viajeId);
@@ -24,4 +34,21 @@ public interface EncomiendaRepository extends JpaRepository<Encomienda, Long> {
 
     @Query("SELECT e FROM Encomienda e JOIN e.venta v WHERE v.estadoPago = :estadoPago")
     List<Encomienda> findByEstadoPago(@Param("estadoPago") String estadoPago);
+
+    // Paginación por clave: solo filas con id mayor al cursor, limitadas por el Pageable
+    @Query(RESUMEN + "WHERE e.ventaId > :cursor ORDER BY e.ventaId")
+    List<EncomiendaResumen> findDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    // Exportación: recorrido completo leído por partes (fetch size) y sin copias para dirty checking
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true") })
+    @Query("SELECT e FROM Encomienda e ORDER BY e.ventaId")
+    Stream<Encomienda> streamTodos();
+
+    @Query(RESUMEN + "ORDER BY e.ventaId")
+    List<EncomiendaResumen> findResumenes();
+
+    @Query(RESUMEN + "WHERE e.ventaId = :ventaId")
+    Optional<EncomiendaResumen> findResumenByVentaId(@Param("ventaId") Long ventaId);
 }
@@ -0,0 +1,89 @@
+package com.grupo04sa.sistema_via_mail.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Acceso JDBC a la tabla mail_outbox (respuestas pendientes de envío)
+ *
+ * La tabla no pertenece al esquema de Laravel, por eso no tiene entidad JPA
+ * (ddl-auto=validate) y se crea solo si el outbox está habilitado.
+ */
+@Repository
+public class MailOutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MailOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void crearTablaSiNoExiste() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS mail_outbox (" +
+                "id BIGSERIAL PRIMARY KEY, " +
+                "destinatario VARCHAR(255) NOT NULL, " +
+                "asunto VARCHAR(500) NOT NULL, " +
+                "cuerpo TEXT NOT NULL, " +
+                "estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE', " +
+                "intentos INT NOT NULL DEFAULT 0, " +
+                "proximo_intento TIMESTAMP NOT NULL DEFAULT now(), " +
+                "ultimo_error TEXT, " +
+                "creado_en TIMESTAMP NOT NULL DEFAULT now(), " +
+                "enviado_en TIMESTAMP)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_mail_outbox_pendientes " +
+                "ON mail_outbox (proximo_intento) WHERE estado = 'PENDIENTE'");
+    }
+
+    /**
+     * Inserta una respuesta pendiente; participa de la transacción en curso
+     */
+    public void insertar(String destinatario, String asunto, String cuerpo) {
+        jdbcTemplate.update("INSERT INTO mail_outbox (destinatario, asunto, cuerpo) VALUES (?, ?, ?)",
+                destinatario, asunto, cuerpo);
+    }
+
+    /**
+     * Bloquea hasta "limite" respuestas vencidas. SKIP LOCKED permite que
+     * varias instancias despachen en paralelo sin tomar las mismas filas.
+     * Debe llamarse dentro de una transacción.
+     */
+    public List<Pendiente> bloquearPendientes(int limite) {
+        return jdbcTemplate.query("SELECT id, destinatario, asunto, cuerpo, intentos FROM mail_outbox " +
+                "WHERE estado = 'PENDIENTE' AND proximo_intento <= now() " +
+                "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, i) -> new Pendiente(rs.getLong("id"), rs.getString("destinatario"),
+                        rs.getString("asunto"), rs.getString("cuerpo"), rs.getInt("intentos")),
+                limite);
+    }
+
+    public void marcarEnviados(List<Long> ids) {
+        jdbcTemplate.batchUpdate("UPDATE mail_outbox SET estado = 'ENVIADO', enviado_en = now() WHERE id = ?",
+                ids, ids.size(), (ps, id) -> ps.setLong(1, id));
+    }
+
+    /**
+     * Reprograma el envío; la hora se calcula en la BD para que todas las
+     * instancias usen el mismo reloj
+     */
+    public void reprogramar(long id, long esperaMs, String error) {
+        jdbcTemplate.update("UPDATE mail_outbox SET intentos = intentos + 1, " +
+                "proximo_intento = now() + ? * INTERVAL '1 millisecond', ultimo_error = ? WHERE id = ?",
+                esperaMs, error, id);
+    }
+
+    public void marcarFallido(long id, String error) {
+        jdbcTemplate.update("UPDATE mail_outbox SET estado = 'FALLIDO', intentos = intentos + 1, " +
+                "ultimo_error = ? WHERE id = ?", error, id);
+    }
+
+    public long contarPendientes() {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM mail_outbox WHERE estado = 'PENDIENTE'", Long.class);
+        return total != null ? total : 0;
+    }
+
+    public record Pendiente(long id, String destinatario, String asunto, String cuerpo, int intentos) {
+    }
+}
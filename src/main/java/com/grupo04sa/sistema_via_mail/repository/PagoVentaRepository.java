@@ -1,18 +1,27 @@
 package com.grupo04sa.sistema_via_mail.repository;
 
+import com.grupo04sa.sistema_via_mail.dto.PagoResumen;
 import com.grupo04sa.sistema_via_mail.model.PagoVenta;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PagoVentaRepository extends JpaRepository<PagoVenta, Long> {
 
+    // Proyección para comandos de lectura: sin qr_base64 ni identificadores de la pasarela
+    String RESUMEN = "SELECT new com.grupo04sa.sistema_via_mail.dto.PagoResumen("
+            + "p.id, p.numCuota, p.monto, p.metodoPago, p.estadoPago, p.fechaPago) FROM PagoVenta p ";
+
     List<PagoVenta> findByVentaId(Long ventaId);
 
     Optional<PagoVenta> findByVentaIdAndNumCuota(Long ventaId, Integer numCuota);
@@ -32,4 +41,24 @@ public interface PagoVentaRepository extends JpaRepository<PagoVenta, Long> {
     Optional<PagoVenta> findByPaymentMethodTransactionId(@Param("paymentMethodTransactionId") String paymentMethodTransactionId);
 
     boolean existsByVentaIdAndNumCuota(Long ventaId, Integer numCuota);
+
+    // Paginación por clave: solo filas con id mayor al cursor, limitadas por el Pageable
+    @Query(RESUMEN + "WHERE p.id > :cursor ORDER BY p.id")
+    List<PagoResumen> findDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    // Exportación: recorrido completo leído por partes (fetch size) y sin copias para dirty checking
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true") })
+    @Query("SELECT p FROM PagoVenta p ORDER BY p.id")
+    Stream<PagoVenta> streamTodos();
+
+    @Query(RESUMEN + "ORDER BY p.id")
+    List<PagoResumen> findResumenes();
+
+    @Query(RESUMEN + "WHERE p.id = :id")
+    Optional<PagoResumen> findResumenById(@Param("id") Long id);
+
+    @Query(RESUMEN + "WHERE p.venta.id = :ventaId ORDER BY p.numCuota")
+    List<PagoResumen> findResumenesByVentaId(@Param("ventaId") Long ventaId);
 }
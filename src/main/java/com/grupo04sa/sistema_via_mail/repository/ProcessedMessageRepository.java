@@ -0,0 +1,71 @@
+package com.grupo04sa.sistema_via_mail.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.grupo04sa.sistema_via_mail.dto.CommandResponse;
+
+/**
+ * Acceso JDBC a la tabla mail_procesados (correos ya ejecutados y su respuesta)
+ *
+ * La clave primaria (message_id, remitente) garantiza que un correo se
+ * ejecute una sola vez aunque se lea de nuevo tras una caída.
+ */
+@Repository
+public class ProcessedMessageRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProcessedMessageRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void crearTablaSiNoExiste() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS mail_procesados (" +
+                "message_id VARCHAR(998) NOT NULL, " +
+                "remitente VARCHAR(255) NOT NULL, " +
+                "comando VARCHAR(50), " +
+                "estado VARCHAR(20) NOT NULL, " +
+                "mensaje TEXT, " +
+                "datos TEXT, " +
+                "mensaje_error TEXT, " +
+                "procesado_en TIMESTAMP NOT NULL DEFAULT now(), " +
+                "PRIMARY KEY (message_id, remitente))");
+    }
+
+    /**
+     * Reserva el correo para ejecutarlo. Retorna false si ya existe: otra
+     * ejecución lo confirmó (o lo está confirmando; el INSERT espera a que
+     * esa transacción termine).
+     */
+    public boolean reclamar(String messageId, String remitente, String comando) {
+        return jdbcTemplate.update("INSERT INTO mail_procesados (message_id, remitente, comando, estado) " +
+                "VALUES (?, ?, ?, 'EN_PROCESO') ON CONFLICT DO NOTHING",
+                messageId, remitente, comando) == 1;
+    }
+
+    public void guardarRespuesta(String messageId, String remitente, CommandResponse response) {
+        jdbcTemplate.update("UPDATE mail_procesados SET estado = ?, mensaje = ?, datos = ?, mensaje_error = ? " +
+                "WHERE message_id = ? AND remitente = ?",
+                response.getEstado(), response.getMensaje(), response.getDatos(), response.getMensajeError(),
+                messageId, remitente);
+    }
+
+    public Optional<CommandResponse> buscarRespuesta(String messageId, String remitente) {
+        List<CommandResponse> respuestas = jdbcTemplate.query(
+                "SELECT comando, estado, mensaje, datos, mensaje_error FROM mail_procesados " +
+                        "WHERE message_id = ? AND remitente = ? AND estado <> 'EN_PROCESO'",
+                (rs, i) -> CommandResponse.builder()
+                        .comando(rs.getString("comando"))
+                        .estado(rs.getString("estado"))
+                        .mensaje(rs.getString("mensaje"))
+                        .datos(rs.getString("datos"))
+                        .mensajeError(rs.getString("mensaje_error"))
+                        .build(),
+                messageId, remitente);
+        return respuestas.stream().findFirst();
+    }
+}
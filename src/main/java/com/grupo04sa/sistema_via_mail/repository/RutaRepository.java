@@ -1,6 +1,8 @@
 package com.grupo04sa.sistema_via_mail.repository;
 
+import com.grupo04sa.sistema_via_mail.dto.RutaResumen;
 import com.grupo04sa.sistema_via_mail.model.Ruta;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,6 +14,10 @@ import java.util.Optional;
 @Repository
 public interface RutaRepository extends JpaRepository<Ruta, Long> {
 
+    // Proyección para comandos de lectura
+    String RESUMEN = "SELECT new com.grupo04sa.sistema_via_mail.dto.RutaResumen("
+            + "r.id, r.origen, r.destino, r.nombre) FROM Ruta r ";
+
     @Query("SELECT r FROM Ruta r WHERE r.origen = :origen AND r.destino = :destino")
     Optional<Ruta> findByOrigenAndDestino(@Param("origen") String origen, @Param("destino") String destino);
 
@@ -21,4 +27,14 @@ public interface RutaRepository extends JpaRepository<Ruta, Long> {
 
     @Query("SELECT r FROM Ruta r WHERE r.nombre LIKE %:keyword% OR r.origen LIKE %:keyword% OR r.destino LIKE %:keyword%")
     List<Ruta> searchByKeyword(@Param("keyword") String keyword);
+
+    // Paginación por clave: solo filas con id mayor al cursor, limitadas por el Pageable
+    @Query(RESUMEN + "WHERE r.id > :cursor ORDER BY r.id")
+    List<RutaResumen> findDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    @Query(RESUMEN + "ORDER BY r.id")
+    List<RutaResumen> findResumenes();
+
+    @Query(RESUMEN + "WHERE r.id = :id")
+    Optional<RutaResumen> findResumenById(@Param("id") Long id);
 }
@@ -1,6 +1,8 @@
 package com.grupo04sa.sistema_via_mail.repository;
 
+import com.grupo04sa.sistema_via_mail.dto.UsuarioResumen;
 import com.grupo04sa.sistema_via_mail.model.Usuario;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,6 +14,11 @@ import java.util.Optional;
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
+    // Proyección para comandos de lectura: sin password, img_url ni preferencias
+    String RESUMEN = "SELECT new com.grupo04sa.sistema_via_mail.dto.UsuarioResumen("
+            + "u.id, u.ci, u.nombre, u.apellido, u.rol, u.telefono, u.correo, u.createdAt) "
+            + "FROM Usuario u ";
+
     Optional<Usuario> findByCi(String ci);
 
     Optional<Usuario> findByCorreo(String correo);
@@ -33,4 +40,23 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     boolean existsByCi(String ci);
 
     boolean existsByCorreo(String correo);
+
+    // Paginación por clave: solo filas con id mayor al cursor, limitadas por el Pageable
+    @Query(RESUMEN + "WHERE u.deletedAt IS NULL AND u.id > :cursor ORDER BY u.id")
+    List<UsuarioResumen> findActivosDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    @Query(RESUMEN + "WHERE u.rol = :rol AND u.deletedAt IS NULL AND u.id > :cursor ORDER BY u.id")
+    List<UsuarioResumen> findByRolActivosDesde(@Param("rol") String rol, @Param("cursor") Long cursor, Pageable pagina);
+
+    @Query(RESUMEN + "WHERE u.deletedAt IS NULL ORDER BY u.id")
+    List<UsuarioResumen> findResumenesActivos();
+
+    @Query(RESUMEN + "WHERE u.rol = :rol AND u.deletedAt IS NULL ORDER BY u.id")
+    List<UsuarioResumen> findResumenesByRolActivos(@Param("rol") String rol);
+
+    @Query(RESUMEN + "WHERE u.id = :id")
+    Optional<UsuarioResumen> findResumenById(@Param("id") Long id);
+
+    @Query(RESUMEN + "WHERE u.ci = :ci AND u.deletedAt IS NULL")
+    Optional<UsuarioResumen> findResumenByCiActivo(@Param("ci") String ci);
 }
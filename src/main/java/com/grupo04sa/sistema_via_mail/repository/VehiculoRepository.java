@@ -1,6 +1,8 @@
 package com.grupo04sa.sistema_via_mail.repository;
 
+import com.grupo04sa.sistema_via_mail.dto.VehiculoResumen;
 import com.grupo04sa.sistema_via_mail.model.Vehiculo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,6 +14,10 @@ import java.util.Optional;
 @Repository
 public interface VehiculoRepository extends JpaRepository<Vehiculo, Long> {
 
+    // Proyección para comandos de lectura: sin img_url ni conductor
+    String RESUMEN = "SELECT new com.grupo04sa.sistema_via_mail.dto.VehiculoResumen("
+            + "v.id, v.placa, v.marca, v.modelo, v.anio, v.color, v.estado) FROM Vehiculo v ";
+
     Optional<Vehiculo> findByPlaca(String placa);
 
     List<Vehiculo> findByConductorId(Long conductorId);
@@ -23,4 +29,17 @@ public interface VehiculoRepository extends JpaRepository<Vehiculo, Long> {
     Optional<Vehiculo> findByIdWithConductor(@Param("id") Long id);
 
     boolean existsByPlaca(String placa);
+
+    // Paginación por clave: solo filas con id mayor al cursor, limitadas por el Pageable
+    @Query(RESUMEN + "WHERE v.id > :cursor ORDER BY v.id")
+    List<VehiculoResumen> findDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    @Query(RESUMEN + "ORDER BY v.id")
+    List<VehiculoResumen> findResumenes();
+
+    @Query(RESUMEN + "WHERE v.id = :id")
+    Optional<VehiculoResumen> findResumenById(@Param("id") Long id);
+
+    @Query(RESUMEN + "WHERE v.placa = :placa")
+    Optional<VehiculoResumen> findResumenByPlaca(@Param("placa") String placa);
 }
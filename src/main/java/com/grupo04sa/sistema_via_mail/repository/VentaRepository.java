@@ -1,18 +1,27 @@
 package com.grupo04sa.sistema_via_mail.repository;
 
+import com.grupo04sa.sistema_via_mail.dto.VentaResumen;
 import com.grupo04sa.sistema_via_mail.model.Venta;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VentaRepository extends JpaRepository<Venta, Long> {
 
+    // Proyección para comandos de lectura: sin usuario, vehículo ni encomienda (1:1 inverso)
+    String RESUMEN = "SELECT new com.grupo04sa.sistema_via_mail.dto.VentaResumen("
+            + "v.id, v.tipo, v.montoTotal, v.estadoPago, v.fecha) FROM Venta v ";
+
     List<Venta> findByUsuarioId(Long usuarioId);
 
     List<Venta> findByVehiculoId(Long vehiculoId);
@@ -38,4 +47,22 @@ public interface VentaRepository extends JpaRepository<Venta, Long> {
 
     @Query("SELECT COUNT(v) FROM Venta v WHERE DATE(v.fecha) = DATE(:fecha)")
     Long countByFecha(@Param("fecha") LocalDateTime fecha);
+
+    // Paginación por clave: solo filas con id mayor al cursor, limitadas por el Pageable
+    @Query(RESUMEN + "WHERE v.id > :cursor ORDER BY v.id")
+    List<VentaResumen> findDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    // Exportación: recorrido completo leído por partes (fetch size) y sin copias para dirty checking.
+    // La encomienda (1:1 del lado inverso) se trae en la misma fila para evitar una consulta por venta
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true") })
+    @Query("SELECT v FROM Venta v LEFT JOIN FETCH v.encomienda ORDER BY v.id")
+    Stream<Venta> streamTodos();
+
+    @Query(RESUMEN + "ORDER BY v.id")
+    List<VentaResumen> findResumenes();
+
+    @Query(RESUMEN + "WHERE v.id = :id")
+    Optional<VentaResumen> findResumenById(@Param("id") Long id);
 }
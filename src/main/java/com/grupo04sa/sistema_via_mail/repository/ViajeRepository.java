@@ -1,6 +1,8 @@
 package com.grupo04sa.sistema_via_mail.repository;
 
+import com.grupo04sa.sistema_via_mail.dto.ViajeResumen;
 import com.grupo04sa.sistema_via_mail.model.Viaje;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,10 +10,16 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ViajeRepository extends JpaRepository<Viaje, Long> {
 
+    // Proyección para comandos de lectura: sin ruta ni vehículo
+    String RESUMEN = "SELECT new com.grupo04sa.sistema_via_mail.dto.ViajeResumen("
+            + "v.id, v.fechaSalida, v.fechaLlegada, v.precio, v.asientosTotales, v.estado) "
+            + "FROM Viaje v ";
+
     List<Viaje> findByEstado(String estado);
 
     List<Viaje> findByRutaId(Long rutaId);
@@ -32,4 +40,14 @@ public interface ViajeRepository extends JpaRepository<Viaje, Long> {
 
     @Query("SELECT v FROM Viaje v JOIN FETCH v.ruta JOIN FETCH v.vehiculo WHERE v.id = :id")
     Viaje findByIdWithDetails(@Param("id") Long id);
+
+    // Paginación por clave: solo filas con id mayor al cursor, limitadas por el Pageable
+    @Query(RESUMEN + "WHERE v.id > :cursor ORDER BY v.id")
+    List<ViajeResumen> findDesde(@Param("cursor") Long cursor, Pageable pagina);
+
+    @Query(RESUMEN + "ORDER BY v.id")
+    List<ViajeResumen> findResumenes();
+
+    @Query(RESUMEN + "WHERE v.id = :id")
+    Optional<ViajeResumen> findResumenById(@Param("id") Long id);
 }
@@ -1,56 +1,238 @@
 package com.grupo04sa.sistema_via_mail.scheduler;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
 
-import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
-import com.grupo04sa.sistema_via_mail.dto.CommandResponse;
-import com.grupo04sa.sistema_via_mail.service.CommandExecutorService;
-import com.grupo04sa.sistema_via_mail.service.CommandParserService;
+import com.grupo04sa.sistema_via_mail.service.CommandLanes;
+import com.grupo04sa.sistema_via_mail.service.CommandPipeline;
 import com.grupo04sa.sistema_via_mail.service.EmailService;
-
+import com.grupo04sa.sistema_via_mail.service.MailSpool;
+import com.grupo04sa.sistema_via_mail.service.MessageProcessingService;
+import com.grupo04sa.sistema_via_mail.service.MetricsService;
+import com.grupo04sa.sistema_via_mail.service.PartitionedExecutor;
+import com.grupo04sa.sistema_via_mail.service.NuevosCorreosEvent;
+import com.grupo04sa.sistema_via_mail.service.ReplyCoalescer;
+import com.grupo04sa.sistema_via_mail.service.SenderRateLimiter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.Message;
 
 /**
- * Scheduler que procesa correos entrantes cada 60 segundos
+ * Scheduler que procesa correos entrantes
+ *
+ * El intervalo de polling se adapta a la carga: si un ciclo admite el máximo
+ * de correos se vuelve a leer enseguida; si la bandeja vuelve vacía el
+ * intervalo se duplica hasta el máximo configurado.
  */
 @Component
-public class EmailScheduler {
+public class EmailScheduler implements SchedulingConfigurer {
 
     private static final Logger log = LoggerFactory.getLogger(EmailScheduler.class);
 
     private final EmailService emailService;
-    private final CommandParserService parserService;
-    private final CommandExecutorService executorService;
+    private final MessageProcessingService messageProcessingService;
+    private final MetricsService metricsService;
+    private final MailSpool mailSpool;
+    private final CommandPipeline commandPipeline;
+    private final SenderRateLimiter senderRateLimiter;
+    private final CommandLanes commandLanes;
+    private final ReplyCoalescer replyCoalescer;
+    private final TaskScheduler taskScheduler;
+
+    private PartitionedExecutor porRemitente;
+
+    // Polling e IMAP IDLE pueden disparar ciclos a la vez; nunca se solapan
+    private final ReentrantLock cicloLock = new ReentrantLock();
+    private final AtomicBoolean cicloPendiente = new AtomicBoolean(false);
 
     @Value("${mail.enabled:true}")
     private boolean mailEnabled;
 
-    public EmailScheduler(EmailService emailService, CommandParserService parserService,
-            CommandExecutorService executorService) {
+    @Value("${email.scheduler.polling.interval:30000}")
+    private long intervaloBase;
+
+    @Value("${email.scheduler.polling.minimo:0}")
+    private long intervaloMinimo;
+
+    @Value("${email.scheduler.polling.maximo:120000}")
+    private long intervaloMaximo;
+
+    @Value("${email.scheduler.max.emails.per.cycle:0}")
+    private int maximoPorCiclo;
+
+    private final AtomicLong intervaloActual = new AtomicLong();
+
+    @Value("${email.scheduler.concurrencia.habilitada:false}")
+    private boolean concurrenciaHabilitada;
+
+    @Value("${email.scheduler.concurrencia.maxima:8}")
+    private int concurrenciaMaxima;
+
+    @Value("${email.scheduler.particiones:0}")
+    private int particiones;
+
+    @Value("${email.scheduler.checkpoint.mensajes:0}")
+    private int checkpointMensajes;
+
+    @Value("${email.scheduler.checkpoint.segundos:0}")
+    private int checkpointSegundos;
+
+    public EmailScheduler(EmailService emailService, MessageProcessingService messageProcessingService,
+            MetricsService metricsService, MailSpool mailSpool, CommandPipeline commandPipeline,
+            SenderRateLimiter senderRateLimiter, CommandLanes commandLanes, ReplyCoalescer replyCoalescer,
+            TaskScheduler taskScheduler) {
         this.emailService = emailService;
-        this.parserService = parserService;
-        this.executorService = executorService;
+        this.messageProcessingService = messageProcessingService;
+        this.metricsService = metricsService;
+        this.mailSpool = mailSpool;
+        this.commandPipeline = commandPipeline;
+        this.senderRateLimiter = senderRateLimiter;
+        this.commandLanes = commandLanes;
+        this.replyCoalescer = replyCoalescer;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        intervaloMaximo = Math.max(intervaloMinimo, intervaloMaximo);
+        intervaloBase = Math.min(intervaloMaximo, Math.max(intervaloMinimo, intervaloBase));
+        intervaloActual.set(intervaloBase);
+        metricsService.registrarIndicador("scheduler.intervalo_ms", intervaloActual::get);
+
+        if (concurrenciaHabilitada && particiones > 0) {
+            porRemitente = new PartitionedExecutor("remitentes", particiones, Math.max(1, concurrenciaMaxima) * 4,
+                    metricsService);
+        }
+    }
 
+    @PreDestroy
+    public void detener() {
+        if (porRemitente != null) {
+            porRemitente.detener();
+        }
     }
 
     /**
-     * Procesa correos no leídos cada 30 segundos (configurable)
+     * Registra el polling con un trigger que lee el intervalo actual
+     */
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addTriggerTask(this::procesarCorreos, this::siguienteEjecucion);
+    }
+
+    private Instant siguienteEjecucion(TriggerContext contexto) {
+        Instant ultima = contexto.lastCompletion();
+        return (ultima != null ? ultima : Instant.now()).plusMillis(intervaloActual.get());
+    }
+
+    /**
+     * Procesa correos no leídos con el intervalo actual
      */
-    @Scheduled(fixedDelayString = "${email.scheduler.polling.interval:30000}")
     public void procesarCorreos() {
         if (!mailEnabled) {
             log.debug("Procesamiento de correo deshabilitado");
             return;
         }
 
+        ejecutarCiclos();
+    }
+
+    /**
+     * Aviso de correos nuevos (IMAP IDLE): deja un ciclo pendiente y lo
+     * programa en el scheduler sin esperar al polling. No procesa en el hilo
+     * que publica el aviso, que es el de la escucha IDLE.
+     */
+    @EventListener
+    public void onNuevosCorreos(NuevosCorreosEvent evento) {
+        if (!mailEnabled) {
+            return;
+        }
+
+        log.info("Aviso de {} correo(s) nuevo(s) - adelantando ciclo", evento.getCantidad());
+        cicloPendiente.set(true);
+        taskScheduler.schedule(this::ejecutarPendientes, Instant.now());
+    }
+
+    private void ejecutarCiclos() {
+        cicloPendiente.set(true);
+        ejecutarPendientes();
+    }
+
+    /**
+     * Ejecuta un ciclo si hay uno pendiente y no hay otro en curso. Si llega
+     * un aviso mientras un ciclo está corriendo, queda pendiente y se
+     * ejecuta otro al terminar.
+     */
+    private void ejecutarPendientes() {
+        while (cicloPendiente.get() && cicloLock.tryLock()) {
+            try {
+                cicloPendiente.set(false);
+                ajustarIntervalo(procesarCiclo());
+                // Un resumen por remitente con las respuestas del ciclo
+                replyCoalescer.vaciar();
+            } finally {
+                cicloLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ajusta el intervalo según el ciclo: si se admitió el tope se relee tras
+     * el mínimo; con la bandeja vacía se duplica (desde el base) hasta el
+     * máximo; en otro caso vuelve al base. Los correos diferidos por límite
+     * de remitente no cuentan: releerlos enseguida no los admitiría.
+     */
+    private void ajustarIntervalo(Ciclo ciclo) {
+        long anterior = intervaloActual.get();
+        long siguiente;
+        if (maximoPorCiclo > 0 && ciclo.admitidos() >= maximoPorCiclo) {
+            siguiente = intervaloMinimo;
+        } else if (ciclo.leidos() == 0) {
+            siguiente = Math.min(intervaloMaximo, Math.max(anterior * 2, intervaloBase));
+        } else {
+            siguiente = intervaloBase;
+        }
+        intervaloActual.set(siguiente);
+        if (siguiente != anterior) {
+            log.debug("Intervalo de polling: {} ms -> {} ms", anterior, siguiente);
+        }
+    }
+
+    /**
+     * Correos leídos de la bandeja y admitidos para procesar en un ciclo
+     */
+    private record Ciclo(int leidos, int admitidos) {
+    }
+
+    /**
+     * Ejecuta un ciclo y retorna cuántos correos se leyeron y se admitieron
+     */
+    private Ciclo procesarCiclo() {
         log.info("Iniciando procesamiento de correos - {}", LocalDateTime.now());
+        int leidos = 0;
+        int admitidos = 0;
 
         try {
             // Leer correos no leídos
@@ -58,100 +240,259 @@ public class EmailScheduler {
 
             if (mensajes.isEmpty()) {
                 log.debug("No hay correos nuevos para procesar");
-                return;
+                return new Ciclo(0, 0);
+            }
+            leidos = mensajes.size();
+            // Listados de ciclos anteriores que siguen en su carril o esperan confirmación
+            mensajes = commandLanes.filtrarEnCurso(mensajes);
+
+            // Reparto entre remitentes sobre toda la bandeja, con el tope por
+            // ciclo: lo que exceda el límite o el tope queda en la bandeja
+            mensajes = planificar(mensajes, maximoPorCiclo);
+            admitidos = mensajes.size();
+            if (mensajes.isEmpty()) {
+                emailService.cerrarConexion();
+                return new Ciclo(leidos, 0);
             }
 
             log.info("Procesando {} correo(s) nuevo(s)", mensajes.size());
 
-            // Procesar cada correo
-            for (Message mensaje : mensajes) {
-                procesarCorreo(mensaje);
+            if (mailSpool.isHabilitado()) {
+                guardarEnSpool(mensajes);
+                return new Ciclo(leidos, admitidos);
+            }
+
+            if (checkpointHabilitado()) {
+                procesarConCheckpoints(mensajes);
+                return new Ciclo(leidos, admitidos);
             }
 
-            // Cerrar conexión y aplicar cambios (eliminar mensajes procesados)
-            emailService.cerrarConexionPOP3();
-            log.info("✅ Conexión POP3 cerrada - Mensajes procesados eliminados del servidor");
+            // Procesar cada correo
+            procesarParte(mensajes);
+
+            // Cerrar ciclo y aplicar cambios (POP3: eliminar mensajes procesados)
+            emailService.cerrarConexion();
+            log.info("✅ Ciclo cerrado - Mensajes procesados confirmados en el servidor");
 
         } catch (Exception e) {
             log.error("Error al procesar correos: {}", e.getMessage(), e);
         }
+        return new Ciclo(leidos, admitidos);
     }
 
     /**
-     * Procesa un correo individual
+     * Copia los correos al spool local y los elimina del servidor sin esperar
+     * a que se ejecuten. Solo se marcan los que quedaron sincronizados a disco.
      */
-    private void procesarCorreo(Message mensaje) {
-        long inicio = System.currentTimeMillis();
-        String emailRemitente = null;
-        String comando = null;
-        String parametrosStr = null;
+    private void guardarEnSpool(List<Message> mensajes) {
+        long inicio = System.nanoTime();
+        List<Message> guardados = new ArrayList<>();
+
+        for (Message mensaje : mensajes) {
+            try {
+                mailSpool.agregar(mensaje);
+                guardados.add(mensaje);
+            } catch (Exception e) {
+                log.error("No se pudo guardar el correo en el spool (queda en el servidor): {}", e.getMessage());
+            }
+        }
 
         try {
-            // Extraer email del remitente
-            emailRemitente = emailService.obtenerEmailRemitente(mensaje);
-            log.info("Procesando correo de: {}", emailRemitente);
+            mailSpool.sincronizar();
+        } catch (Exception e) {
+            log.error("Error al sincronizar el spool - no se elimina nada del servidor: {}", e.getMessage(), e);
+            emailService.cerrarConexion();
+            return;
+        }
 
-            // Parsear comando del asunto
-            CommandRequest request = parserService.parsear(mensaje, emailRemitente);
-            comando = request.getComando();
-            parametrosStr = request.getParametros().toString();
+        for (Message mensaje : guardados) {
+            emailService.marcarComoLeido(mensaje);
+        }
+        emailService.cerrarConexion();
 
-            log.info("Comando: {} con {} parámetro(s)", comando, request.getParametros().size());
+        metricsService.registrarTiempo("scheduler.ingesta_spool", inicio);
+        log.info("✅ {} correo(s) guardados en spool y confirmados en el servidor", guardados.size());
+    }
+
+    /**
+     * Procesa la bandeja por tramos: cada N mensajes o T segundos se cierra el
+     * INBOX (expunge) y se vuelve a leer. Ante una caída solo se reprocesa el
+     * tramo en curso, a cambio de una reconexión por tramo.
+     *
+     * Solo se recorre lo admitido por el plan inicial, en su orden: tras cada
+     * relectura se busca por Message-ID sin volver a planificar (el límite
+     * por remitente ya se cobró). Lo que llegue durante el ciclo, y lo
+     * admitido sin Message-ID que no se alcanzó, queda para el siguiente.
+     */
+    private void procesarConCheckpoints(List<Message> mensajes) throws Exception {
+        int pendienteInicial = mensajes.size();
+        int procesados = 0;
+        List<String> plan = new ArrayList<>(mensajes.size());
+        for (Message mensaje : mensajes) {
+            plan.add(emailService.obtenerMessageId(mensaje));
+        }
+
+        while (!mensajes.isEmpty()) {
+            int limite = mensajes.size();
+            if (checkpointMensajes > 0) {
+                limite = Math.min(limite, checkpointMensajes);
+            }
 
-            // Ejecutar comando
-            CommandResponse response = executorService.ejecutar(request);
+            int procesadosTramo = procesarTramo(mensajes.subList(0, limite));
+            procesados += procesadosTramo;
 
-            // Preparar respuesta
-            String asuntoRespuesta = "RE: " + comando + " - " + response.getEstado();
-            String cuerpoRespuesta = response.formatear();
+            // Checkpoint: aplicar las eliminaciones del tramo
+            long inicioCheckpoint = System.nanoTime();
+            emailService.cerrarConexion();
+            metricsService.registrarTiempo("scheduler.checkpoint.cierre", inicioCheckpoint);
+            metricsService.incrementar("scheduler.checkpoints");
+            log.info("Checkpoint: {} correo(s) confirmados ({} de {})", procesadosTramo, procesados,
+                    pendienteInicial);
 
-            // Intentar enviar respuesta (opcional - puede fallar sin afectar el
-            // procesamiento)
-            try {
-                emailService.enviarCorreo(emailRemitente, asuntoRespuesta, cuerpoRespuesta);
-                log.info("Respuesta enviada a: {} - Estado: {}", emailRemitente, response.getEstado());
-            } catch (Exception emailEx) {
-                log.warn("No se pudo enviar email de respuesta a {} (comando ejecutado correctamente): {}",
-                        emailRemitente, emailEx.getMessage());
+            plan = new ArrayList<>(plan.subList(procesadosTramo, plan.size()));
+            if (plan.isEmpty()) {
+                break;
             }
 
-            // Marcar como leído
-            emailService.marcarComoLeido(mensaje);
+            long inicioRelectura = System.nanoTime();
+            mensajes = buscarPlanificados(commandLanes.filtrarEnCurso(emailService.leerCorreosNoLeidos()), plan);
+            metricsService.registrarTiempo("scheduler.checkpoint.relectura", inicioRelectura);
+        }
+    }
 
-            // Calcular tiempo de ejecución
-            int tiempoEjecucion = (int) (System.currentTimeMillis() - inicio);
+    /**
+     * Relaciona el resto del plan con los mensajes recién leídos por
+     * Message-ID. Deja en el plan solo los encontrados, en el mismo orden
+     * que la lista retornada.
+     */
+    private List<Message> buscarPlanificados(List<Message> leidos, List<String> plan) {
+        Map<String, Message> porId = new HashMap<>();
+        for (Message mensaje : leidos) {
+            String id = emailService.obtenerMessageId(mensaje);
+            if (id != null) {
+                porId.putIfAbsent(id, mensaje);
+            }
+        }
 
-            log.info("Correo procesado exitosamente en {}ms", tiempoEjecucion);
+        List<Message> encontrados = new ArrayList<>(plan.size());
+        List<String> restantes = new ArrayList<>(plan.size());
+        for (String id : plan) {
+            Message mensaje = id != null ? porId.remove(id) : null;
+            if (mensaje != null) {
+                encontrados.add(mensaje);
+                restantes.add(id);
+            }
+        }
+        plan.clear();
+        plan.addAll(restantes);
+        return encontrados;
+    }
 
-        } catch (Exception e) {
-            log.error("Error al procesar correo de {}: {}", emailRemitente, e.getMessage(), e);
+    /**
+     * Procesa un tramo y retorna cuántos correos se procesaron. Con
+     * checkpoint.segundos el tramo se corta al vencer el plazo: en modo
+     * secuencial tras el correo en curso y en los modos en paralelo
+     * (pipeline, carriles, concurrente) tras la oleada en curso, de hasta
+     * concurrencia.maxima correos.
+     */
+    private int procesarTramo(List<Message> tramo) throws InterruptedException {
+        boolean paralelo = commandPipeline.isHabilitado() || commandLanes.isHabilitado() || concurrenciaHabilitada;
+        if (checkpointSegundos <= 0) {
+            procesarParte(tramo);
+            return tramo.size();
+        }
 
-            try {
-                // Intentar enviar respuesta de error (opcional)
-                String asuntoError = "RE: ERROR - " + (comando != null ? comando : "COMANDO_INVALIDO");
-                String cuerpoError = "ERROR AL PROCESAR COMANDO\n\n" +
-                        "Error: " + e.getMessage() + "\n\n" +
-                        "Por favor verifica el formato del comando y vuelve a intentar.";
+        long limite = System.nanoTime() + checkpointSegundos * 1_000_000_000L;
+        int oleada = paralelo ? Math.max(1, concurrenciaMaxima) : 1;
+        int procesados = 0;
+        while (procesados < tramo.size()) {
+            List<Message> parte = tramo.subList(procesados, Math.min(tramo.size(), procesados + oleada));
+            procesarParte(parte);
+            procesados += parte.size();
+            if (System.nanoTime() >= limite) {
+                break;
+            }
+        }
+        return procesados;
+    }
 
-                if (emailRemitente != null) {
-                    try {
-                        emailService.enviarCorreo(emailRemitente, asuntoError, cuerpoError);
-                    } catch (Exception emailEx) {
-                        log.warn("No se pudo enviar email de error a {}: {}", emailRemitente, emailEx.getMessage());
-                    }
+    private void procesarParte(List<Message> parte) throws InterruptedException {
+        if (commandPipeline.isHabilitado()) {
+            commandPipeline.procesar(parte);
+        } else if (commandLanes.isHabilitado()) {
+            commandLanes.procesar(parte, messageProcessingService::procesar);
+        } else if (concurrenciaHabilitada) {
+            procesarConcurrente(parte);
+        } else {
+            for (Message mensaje : parte) {
+                procesarCorreo(mensaje);
+            }
+        }
+    }
 
-                    // Registrar error en log
-                    int tiempoEjecucion = (int) (System.currentTimeMillis() - inicio);
+    private List<Message> planificar(List<Message> mensajes, int maximo) {
+        return senderRateLimiter.planificar(mensajes, emailService::obtenerEmailRemitente, commandLanes::costo,
+                maximo);
+    }
 
-                }
+    private boolean checkpointHabilitado() {
+        return checkpointMensajes > 0 || checkpointSegundos > 0;
+    }
+
+    /**
+     * Procesa los correos en paralelo sobre hilos virtuales, con un máximo de
+     * comandos simultáneos. Retorna recién cuando todos terminaron, así el
+     * expunge posterior solo elimina mensajes ya procesados.
+     */
+    private void procesarConcurrente(List<Message> mensajes) throws InterruptedException {
+        if (porRemitente != null) {
+            procesarPorRemitente(mensajes);
+            return;
+        }
 
-                // Marcar como leído de todas formas
-                emailService.marcarComoLeido(mensaje);
+        Semaphore permisos = new Semaphore(Math.max(1, concurrenciaMaxima));
 
-            } catch (Exception ex) {
-                log.error("Error al enviar respuesta de error: {}", ex.getMessage(), ex);
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Message mensaje : mensajes) {
+                permisos.acquire();
+                hilos.submit(() -> {
+                    try {
+                        procesarCorreo(mensaje);
+                    } finally {
+                        permisos.release();
+                    }
+                });
             }
+        } // close() espera a que finalicen todas las tareas enviadas
+    }
+
+    /**
+     * Procesa en paralelo entre remitentes y en orden dentro de cada uno
+     * (por ejemplo INSBOL y luego INSPAG de la misma venta). Espera a que
+     * terminen todos antes de retornar.
+     */
+    private void procesarPorRemitente(List<Message> mensajes) throws InterruptedException {
+        CountDownLatch pendientes = new CountDownLatch(mensajes.size());
+        for (Message mensaje : mensajes) {
+            String remitente = emailService.obtenerEmailRemitente(mensaje);
+            porRemitente.ejecutar(remitente, () -> {
+                try {
+                    procesarCorreo(mensaje);
+                } finally {
+                    pendientes.countDown();
+                }
+            });
         }
+        pendientes.await();
+    }
+
+    /**
+     * Procesa un correo y lo marca como leído (también si falló, para que no
+     * se reprocese en cada ciclo)
+     */
+    private void procesarCorreo(Message mensaje) {
+        messageProcessingService.procesar(mensaje);
+        emailService.marcarComoLeido(mensaje);
     }
 
     /**
@@ -159,7 +500,22 @@ public class EmailScheduler {
      */
     public void logInicio() {
         if (mailEnabled) {
-            log.info("EmailScheduler iniciado - Polling cada 60 segundos");
+            log.info("EmailScheduler iniciado - Polling cada {} ms (adaptativo entre {} y {} ms, tope {} por ciclo)",
+                    intervaloBase, intervaloMinimo, intervaloMaximo, maximoPorCiclo);
+            if (concurrenciaHabilitada) {
+                log.info("Procesamiento concurrente habilitado - máximo {} comando(s) en paralelo",
+                        concurrenciaMaxima);
+            }
+            if (porRemitente != null) {
+                log.info("Orden por remitente: {} partición(es)", porRemitente.getCantidad());
+            }
+            if (senderRateLimiter.isHabilitado()) {
+                log.info("Límite por remitente habilitado - excedentes se difieren al siguiente ciclo");
+            }
+            if (checkpointHabilitado()) {
+                log.info("Checkpoints de expunge cada {} mensaje(s) / {} s (0 = sin límite)",
+                        checkpointMensajes, checkpointSegundos);
+            }
         } else {
             log.info("EmailScheduler deshabilitado por configuración");
         }
@@ -0,0 +1,146 @@
+package com.grupo04sa.sistema_via_mail.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.grupo04sa.sistema_via_mail.repository.MailOutboxRepository;
+import com.grupo04sa.sistema_via_mail.repository.MailOutboxRepository.Pendiente;
+import com.grupo04sa.sistema_via_mail.service.EmailService;
+import com.grupo04sa.sistema_via_mail.service.MetricsService;
+import com.grupo04sa.sistema_via_mail.service.SmtpTransportPool;
+
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Envía las respuestas pendientes del outbox en lotes
+ *
+ * Cada lote se bloquea con FOR UPDATE SKIP LOCKED, se envía por una conexión
+ * SMTP del pool y se actualiza en la misma transacción. Los fallos se
+ * reintentan con espera exponencial hasta el máximo de intentos.
+ */
+@Component
+@ConditionalOnProperty(name = "mail.outbox.habilitado", havingValue = "true")
+public class ReplyOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplyOutboxDispatcher.class);
+
+    private final MailOutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final SmtpTransportPool smtpTransportPool;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsService metricsService;
+
+    @Value("${mail.outbox.lote:20}")
+    private int tamanoLote;
+
+    @Value("${mail.outbox.intentos-maximos:8}")
+    private int intentosMaximos;
+
+    @Value("${mail.outbox.espera-inicial-ms:30000}")
+    private long esperaInicialMs;
+
+    @Value("${mail.outbox.espera-maxima-ms:3600000}")
+    private long esperaMaximaMs;
+
+    public ReplyOutboxDispatcher(MailOutboxRepository outboxRepository, EmailService emailService,
+            SmtpTransportPool smtpTransportPool, TransactionTemplate transactionTemplate,
+            MetricsService metricsService) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.smtpTransportPool = smtpTransportPool;
+        this.transactionTemplate = transactionTemplate;
+        this.metricsService = metricsService;
+        metricsService.registrarIndicador("outbox.pendientes", outboxRepository::contarPendientes);
+    }
+
+    /**
+     * Despacha lotes mientras haya respuestas vencidas
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.intervalo:5000}")
+    public void despachar() {
+        try {
+            Integer procesadas;
+            do {
+                procesadas = transactionTemplate.execute(status -> despacharLote());
+            } while (procesadas != null && procesadas >= tamanoLote);
+        } catch (Exception e) {
+            log.error("Error al despachar outbox de respuestas: {}", e.getMessage(), e);
+        }
+    }
+
+    private int despacharLote() {
+        List<Pendiente> pendientes = outboxRepository.bloquearPendientes(tamanoLote);
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+
+        long inicio = System.nanoTime();
+        Map<MimeMessage, Pendiente> porMensaje = new IdentityHashMap<>();
+        List<MimeMessage> mensajes = new ArrayList<>();
+        for (Pendiente pendiente : pendientes) {
+            try {
+                MimeMessage mensaje = emailService.crearRespuesta(pendiente.destinatario(), pendiente.asunto(),
+                        pendiente.cuerpo());
+                porMensaje.put(mensaje, pendiente);
+                mensajes.add(mensaje);
+            } catch (Exception e) {
+                fallar(pendiente, e);
+            }
+        }
+
+        Map<Long, Exception> errores = new HashMap<>();
+        smtpTransportPool.enviarLote(mensajes, (mensaje, e) -> errores.put(porMensaje.get(mensaje).id(), e));
+
+        List<Long> enviados = new ArrayList<>();
+        for (MimeMessage mensaje : mensajes) {
+            Pendiente pendiente = porMensaje.get(mensaje);
+            Exception error = errores.get(pendiente.id());
+            if (error == null) {
+                enviados.add(pendiente.id());
+            } else {
+                fallar(pendiente, error);
+            }
+        }
+        if (!enviados.isEmpty()) {
+            outboxRepository.marcarEnviados(enviados);
+        }
+
+        metricsService.registrarTiempo("outbox.lote", inicio);
+        metricsService.incrementar("outbox.enviadas", enviados.size());
+        log.debug("Outbox: {} respuesta(s) enviadas, {} con error", enviados.size(),
+                pendientes.size() - enviados.size());
+        return pendientes.size();
+    }
+
+    /**
+     * Reprograma con espera exponencial o marca FALLIDO si agotó los intentos
+     */
+    private void fallar(Pendiente pendiente, Exception e) {
+        int intentos = pendiente.intentos() + 1;
+        String error = e.getMessage();
+        metricsService.incrementar("outbox.errores");
+
+        if (intentos >= intentosMaximos) {
+            outboxRepository.marcarFallido(pendiente.id(), error);
+            log.error("Respuesta {} a {} descartada tras {} intento(s): {}", pendiente.id(),
+                    pendiente.destinatario(), intentos, error);
+            return;
+        }
+
+        long espera = Math.min(esperaMaximaMs, esperaInicialMs << Math.min(intentos - 1, 20));
+        outboxRepository.reprogramar(pendiente.id(), espera, error);
+        log.warn("Respuesta {} a {} reprogramada en {} s (intento {}): {}", pendiente.id(),
+                pendiente.destinatario(), espera / 1000, intentos, error);
+    }
+}
@@ -2,12 +2,16 @@ package com.grupo04sa.sistema_via_mail.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.OptionalInt;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.grupo04sa.sistema_via_mail.dto.BoletoResumen;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.exception.ValidationException;
 import com.grupo04sa.sistema_via_mail.model.Boleto;
@@ -35,16 +39,19 @@ public class BoletoService {
     private final VentaRepository ventaRepository;
     private final PagoVentaRepository pagoVentaRepository;
     private final CommandValidator validator;
+    private final SeatOccupancyIndex seatOccupancyIndex;
 
     public BoletoService(BoletoRepository boletoRepository, ViajeRepository viajeRepository,
             UsuarioRepository usuarioRepository, VentaRepository ventaRepository,
-            PagoVentaRepository pagoVentaRepository, CommandValidator validator) {
+            PagoVentaRepository pagoVentaRepository, CommandValidator validator,
+            SeatOccupancyIndex seatOccupancyIndex) {
         this.boletoRepository = boletoRepository;
         this.viajeRepository = viajeRepository;
         this.usuarioRepository = usuarioRepository;
         this.ventaRepository = ventaRepository;
         this.pagoVentaRepository = pagoVentaRepository;
         this.validator = validator;
+        this.seatOccupancyIndex = seatOccupancyIndex;
     }
 
     /**
@@ -79,14 +86,19 @@ public class BoletoService {
             throw new ValidationException("viaje", "La fecha y hora del viaje ya pasaron");
         }
 
+        // Reservar el asiento en el índice en memoria (se libera si la venta falla)
+        SeatOccupancyIndex.Resultado reserva = seatOccupancyIndex.reservar(viajeId, asiento,
+                viaje.getAsientosTotales());
+
         // Verificar que el asiento no esté ocupado
-        if (boletoRepository.existsByViajeIdAndAsiento(viajeId, asiento)) {
+        if (reserva == SeatOccupancyIndex.Resultado.OCUPADO || (reserva == SeatOccupancyIndex.Resultado.NO_INDEXADO
+                && boletoRepository.existsByViajeIdAndAsiento(viajeId, asiento))) {
             throw new ValidationException("asiento", "El asiento " + asiento + " ya está ocupado");
         }
 
         // Verificar que el asiento no exceda la capacidad
-        Long boletosVendidos = boletoRepository.countByViajeId(viajeId);
-        if (boletosVendidos >= viaje.getAsientosTotales()) {
+        if (reserva == SeatOccupancyIndex.Resultado.SIN_CUPO || (reserva == SeatOccupancyIndex.Resultado.NO_INDEXADO
+                && boletoRepository.countByViajeId(viajeId) >= viaje.getAsientosTotales())) {
             throw new ValidationException("viaje", "No hay asientos disponibles en este viaje");
         }
 
@@ -131,7 +143,13 @@ public class BoletoService {
                 .viaje(viaje)
                 .build();
 
-        boleto = boletoRepository.save(boleto);
+        try {
+            boleto = boletoRepository.save(boleto);
+        } catch (DataIntegrityViolationException e) {
+            // Restricción única (viaje, asiento): vendido por fuera después de cargar el índice
+            seatOccupancyIndex.invalidar(viajeId);
+            throw new ValidationException("asiento", "El asiento " + asiento + " ya está ocupado");
+        }
 
         log.info("Boleto vendido exitosamente - ID: {}, Asiento: {}, Viaje: {}",
                 boleto.getId(), asiento, viajeId);
@@ -142,15 +160,33 @@ public class BoletoService {
     /**
      * Listar todos los boletos
      */
-    public List<Boleto> listarTodos() {
-        return boletoRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<BoletoResumen> listarTodos() {
+        return boletoRepository.findResumenes();
     }
 
     /**
      * Listar boletos por viaje
      */
-    public List<Boleto> listarPorViaje(Long viajeId) {
-        return boletoRepository.findByViajeId(viajeId);
+    @Transactional(readOnly = true)
+    public List<BoletoResumen> listarPorViaje(Long viajeId) {
+        return boletoRepository.findResumenesByViajeId(viajeId);
+    }
+
+    /**
+     * Listar boletos con id mayor al cursor (una página)
+     */
+    @Transactional(readOnly = true)
+    public List<BoletoResumen> listarDesde(Long cursor, int limite) {
+        return boletoRepository.findDesde(cursor, PageRequest.of(0, limite));
+    }
+
+    /**
+     * Listar una página de boletos de un viaje
+     */
+    @Transactional(readOnly = true)
+    public List<BoletoResumen> listarPorViajeDesde(Long viajeId, Long cursor, int limite) {
+        return boletoRepository.findByViajeIdDesde(viajeId, cursor, PageRequest.of(0, limite));
     }
 
     /**
@@ -161,6 +197,28 @@ public class BoletoService {
                 .orElseThrow(() -> new EntityNotFoundException("Boleto", id));
     }
 
+    /**
+     * Obtener la proyección de un boleto (comandos de lectura)
+     */
+    @Transactional(readOnly = true)
+    public BoletoResumen obtenerResumen(Long id) {
+        return boletoRepository.findResumenById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Boleto", id));
+    }
+
+    /**
+     * Asientos disponibles de un viaje, desde el índice en memoria si está
+     * habilitado
+     */
+    @Transactional(readOnly = true)
+    public int asientosDisponibles(Long viajeId, int asientosTotales) {
+        OptionalInt disponibles = seatOccupancyIndex.disponibles(viajeId, asientosTotales);
+        if (disponibles.isPresent()) {
+            return disponibles.getAsInt();
+        }
+        return (int) Math.max(0, asientosTotales - boletoRepository.countByViajeId(viajeId));
+    }
+
     /**
      * Obtener asientos ocupados de un viaje
      */
@@ -1,14 +1,33 @@
 package com.grupo04sa.sistema_via_mail.service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.grupo04sa.sistema_via_mail.dto.BoletoResumen;
 import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
 import com.grupo04sa.sistema_via_mail.dto.CommandResponse;
+import com.grupo04sa.sistema_via_mail.dto.EncomiendaResumen;
+import com.grupo04sa.sistema_via_mail.dto.PagoResumen;
+import com.grupo04sa.sistema_via_mail.dto.RutaResumen;
+import com.grupo04sa.sistema_via_mail.dto.UsuarioResumen;
+import com.grupo04sa.sistema_via_mail.dto.VehiculoResumen;
+import com.grupo04sa.sistema_via_mail.dto.VentaResumen;
+import com.grupo04sa.sistema_via_mail.dto.ViajeResumen;
 import com.grupo04sa.sistema_via_mail.exception.CommandException;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.exception.UnauthorizedException;
@@ -19,10 +38,11 @@ import com.grupo04sa.sistema_via_mail.model.PagoVenta;
 import com.grupo04sa.sistema_via_mail.model.Ruta;
 import com.grupo04sa.sistema_via_mail.model.Usuario;
 import com.grupo04sa.sistema_via_mail.model.Vehiculo;
-import com.grupo04sa.sistema_via_mail.model.Venta;
 import com.grupo04sa.sistema_via_mail.model.Viaje;
 import com.grupo04sa.sistema_via_mail.util.ResponseFormatter;
 
+import jakarta.annotation.PostConstruct;
+
 /**
  * Servicio que ejecuta comandos recibidos por correo
  * Orquesta la ejecución de operaciones CRUD según el comando
@@ -42,12 +62,32 @@ public class CommandExecutorService {
     private final CommandParserService parserService;
     private final CommandValidatorService validatorService;
     private final ResponseFormatter formatter;
+    private final TransactionTemplate transaccionConLimite;
+    private final TransactionTemplate transaccionLectura;
+    private final TransactionTemplate transaccionIndependiente;
+    private final MetricsService metricsService;
+    private final ListExportService listExportService;
+
+    // Parámetro de paginación de los LIS*: limite=N o cursor=ID
+    private static final Pattern PARAMETRO_PAGINA = Pattern.compile("(?i)^(limite|cursor)=(\\d+)$");
+
+    // Filas por página si el LIS* no indica limite (0 = listado completo)
+    @Value("${command.listado.limite-por-defecto:0}")
+    private int limitePorDefecto;
+
+    @Value("${command.listado.limite-maximo:500}")
+    private int limiteMaximo;
+
+    // Límite de cada comando (0 = sin límite)
+    @Value("${command.execution.timeout:30}")
+    private int timeoutSegundos;
 
     public CommandExecutorService(UsuarioService usuarioService, BoletoService boletoService,
             EncomiendaService encomiendaService, VehiculoService vehiculoService, RutaService rutaService,
             ViajeService viajeService, VentaService ventaService, PagoVentaService pagoService,
             CommandParserService parserService, CommandValidatorService validatorService,
-            ResponseFormatter formatter) {
+            ResponseFormatter formatter, PlatformTransactionManager transactionManager,
+            MetricsService metricsService, ListExportService listExportService) {
         this.usuarioService = usuarioService;
         this.boletoService = boletoService;
         this.encomiendaService = encomiendaService;
@@ -59,20 +99,253 @@ public class CommandExecutorService {
         this.parserService = parserService;
         this.validatorService = validatorService;
         this.formatter = formatter;
+        this.transaccionConLimite = new TransactionTemplate(transactionManager);
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+        this.transaccionIndependiente = new TransactionTemplate(transactionManager);
+        this.transaccionIndependiente.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.metricsService = metricsService;
+        this.listExportService = listExportService;
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        if (timeoutSegundos > 0) {
+            transaccionConLimite.setTimeout(timeoutSegundos);
+            transaccionLectura.setTimeout(timeoutSegundos);
+            transaccionIndependiente.setTimeout(timeoutSegundos);
+            log.info("Límite de ejecución por comando: {} s", timeoutSegundos);
+        }
     }
 
     /**
      * Ejecuta un comando y retorna la respuesta
      */
     public CommandResponse ejecutar(CommandRequest request) {
+        return ejecutar(request, null);
+    }
+
+    /**
+     * Ejecuta un comando cuyos permisos ya fueron validados
+     *
+     * El comando corre en una transacción con command.execution.timeout: cada
+     * consulta recibe como query timeout el tiempo restante (el driver cancela
+     * la sentencia) y vencido el plazo no se inicia ninguna otra. Si el plazo
+     * se cumplió, se revierte todo y se responde TIMEOUT. Las consultas y
+     * listados usan una transacción de solo lectura (sin flush ni dirty checking).
+     * Con idempotencia u outbox habilitados esta transacción se une a la
+     * externa (transaccionComando): el plazo corre desde que esa empezó y
+     * vale el límite de la externa, no el de esta plantilla.
+     *
+     * @param usuarioValidado Usuario retornado por validarPermisos (null = validar aquí)
+     */
+    public CommandResponse ejecutar(CommandRequest request, Usuario usuarioValidado) {
+        if (request.esLote()) {
+            return ejecutarLote(request, usuarioValidado);
+        }
+        if (timeoutSegundos <= 0) {
+            return ejecutarComando(request, usuarioValidado, System.nanoTime());
+        }
+        boolean escritura = validatorService.clasificarCosto(request.getComando())
+                == CommandValidatorService.ClaseCosto.ESCRITURA;
+        return ejecutarConLimite(escritura ? transaccionConLimite : transaccionLectura, request, usuarioValidado);
+    }
+
+    private CommandResponse ejecutarConLimite(TransactionTemplate transaccion, CommandRequest request,
+            Usuario usuarioValidado) {
+        long inicio = System.nanoTime();
+        long limite = inicio + TimeUnit.SECONDS.toNanos(timeoutSegundos);
+
+        return transaccion.execute(status -> {
+            CommandResponse resultado = ejecutarComando(request, usuarioValidado, inicio);
+            if ("TIMEOUT".equals(resultado.getEstado())) {
+                status.setRollbackOnly();
+                return resultado;
+            }
+            if (timeoutSegundos > 0 && System.nanoTime() - limite >= 0) {
+                status.setRollbackOnly();
+                return respuestaTimeout(request, inicio);
+            }
+            if (status.isRollbackOnly()) {
+                // Un servicio falló: revertir sin UnexpectedRollbackException
+                status.setRollbackOnly();
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * Ejecuta los comandos de un LOTE y consolida las respuestas en una sola
+     *
+     * LOTE["ATOMICO"]: todos en una transacción (el límite de tiempo aplica
+     * al lote completo); al primer error se revierte todo y el resto no se
+     * ejecuta. Sin ATOMICO cada comando tiene su propia transacción y un
+     * error no detiene a los demás.
+     */
+    private CommandResponse ejecutarLote(CommandRequest lote, Usuario usuarioValidado) {
+        long inicio = System.nanoTime();
+        Usuario usuario;
+        try {
+            usuario = usuarioValidado != null ? usuarioValidado : validatorService.validarPermisos(lote);
+        } catch (Exception e) {
+            log.warn("Lote rechazado: {}", e.getMessage());
+            return CommandResponse.builder()
+                    .comando(lote.getComando())
+                    .estado("ERROR")
+                    .mensaje("Error de autorización")
+                    .mensajeError(e.getMessage())
+                    .build();
+        }
+
+        boolean atomico = lote.getParametros().stream().anyMatch("ATOMICO"::equalsIgnoreCase);
+        List<CommandResponse> respuestas = atomico
+                ? ejecutarLoteAtomico(lote.getLote(), usuario)
+                : ejecutarLoteIndependiente(lote.getLote(), usuario);
+
+        long exitosos = respuestas.stream().filter(r -> "EXITOSO".equals(r.getEstado())).count();
+        String estado = exitosos == respuestas.size() ? "EXITOSO" : (atomico ? "ERROR" : "PARCIAL");
+
+        metricsService.incrementar("lote.correos");
+        metricsService.incrementar("lote.comandos", respuestas.size());
+        metricsService.registrarTiempo("lote.ejecucion", inicio);
+        log.info("Lote{} de {}: {} de {} comando(s) exitosos", atomico ? " atómico" : "",
+                lote.getEmailRemitente(), exitosos, respuestas.size());
+
+        return CommandResponse.builder()
+                .comando(lote.getComando())
+                .estado(estado)
+                .mensaje((atomico ? "Lote atómico: " : "Lote: ") + exitosos + " de " + respuestas.size()
+                        + " comando(s) ejecutados correctamente")
+                .datos(formatter.formatLote(respuestas))
+                .build();
+    }
+
+    private List<CommandResponse> ejecutarLoteAtomico(List<CommandRequest> comandos, Usuario usuario) {
+        List<CommandResponse> respuestas = new ArrayList<>();
+        boolean[] revertido = new boolean[1];
+        long inicio = System.nanoTime();
+        long limite = inicio + TimeUnit.SECONDS.toNanos(timeoutSegundos);
+
+        transaccionConLimite.executeWithoutResult(status -> {
+            for (CommandRequest comando : comandos) {
+                CommandResponse respuesta = ejecutarEnLote(comando, usuario, inicio);
+                if (timeoutSegundos > 0 && System.nanoTime() - limite >= 0
+                        && "EXITOSO".equals(respuesta.getEstado())) {
+                    respuesta = respuestaTimeout(comando, inicio);
+                }
+                respuestas.add(respuesta);
+                if (!"EXITOSO".equals(respuesta.getEstado())) {
+                    revertido[0] = true;
+                    break;
+                }
+            }
+            if (revertido[0] || status.isRollbackOnly()) {
+                revertido[0] = true;
+                status.setRollbackOnly();
+            }
+        });
+
+        if (revertido[0]) {
+            for (CommandResponse respuesta : respuestas) {
+                if ("EXITOSO".equals(respuesta.getEstado())) {
+                    respuesta.setEstado("REVERTIDO");
+                    respuesta.setMensaje("Revertido: otro comando del lote falló");
+                }
+            }
+            for (int i = respuestas.size(); i < comandos.size(); i++) {
+                respuestas.add(CommandResponse.builder()
+                        .comando(comandos.get(i).getComando())
+                        .estado("OMITIDO")
+                        .mensaje("No ejecutado: el lote se revirtió")
+                        .build());
+            }
+        }
+        return respuestas;
+    }
+
+    /**
+     * Cada línea en su propia transacción (REQUIRES_NEW). Con idempotencia u
+     * outbox habilitados la transacción externa sigue abierta mientras corre
+     * cada línea, así que un lote ocupa dos conexiones del pool a la vez: el
+     * pool de BD debe cubrir el doble de los hilos que ejecutan comandos.
+     */
+    private List<CommandResponse> ejecutarLoteIndependiente(List<CommandRequest> comandos, Usuario usuario) {
+        List<CommandResponse> respuestas = new ArrayList<>(comandos.size());
+        for (CommandRequest comando : comandos) {
+            CommandResponse respuesta = validarEnLote(comando, usuario);
+            if (respuesta == null) {
+                // Transacción propia aunque haya una externa (idempotencia/outbox)
+                respuesta = ejecutarConLimite(transaccionIndependiente, comando, usuario);
+            }
+            respuestas.add(respuesta);
+        }
+        return respuestas;
+    }
+
+    private CommandResponse ejecutarEnLote(CommandRequest comando, Usuario usuario, long inicio) {
+        CommandResponse rechazo = validarEnLote(comando, usuario);
+        return rechazo != null ? rechazo : ejecutarComando(comando, usuario, inicio);
+    }
+
+    /**
+     * Valida el permiso de una línea del lote; retorna la respuesta de error
+     * o null si puede ejecutarse
+     */
+    private CommandResponse validarEnLote(CommandRequest comando, Usuario usuario) {
+        if (listExportService.admite(comando.getComando()) && listExportService.extraerParametro(comando)) {
+            // La respuesta consolidada no lleva adjuntos
+            return CommandResponse.builder()
+                    .comando(comando.getComando())
+                    .estado("ERROR")
+                    .mensaje("Exportación no disponible en un lote")
+                    .mensajeError("Envíe " + comando.getComando() + "[\"EXPORTAR\"] en un correo aparte")
+                    .build();
+        }
+        try {
+            validatorService.validarComando(usuario, comando.getComando());
+            return null;
+        } catch (IllegalStateException e) {
+            return CommandResponse.builder()
+                    .comando(comando.getComando())
+                    .estado("ERROR")
+                    .mensaje("Error de autorización")
+                    .mensajeError(e.getMessage())
+                    .build();
+        }
+    }
+
+    private CommandResponse respuestaTimeout(CommandRequest request, long inicio) {
+        metricsService.incrementar("comandos.timeout");
+        metricsService.incrementar("comandos.timeout." + request.getComando());
+        metricsService.registrarTiempo("comandos.timeout.duracion", inicio);
+        log.warn("Comando {} de {} superó el límite de {} s - cancelado y revertido",
+                request.getComando(), request.getEmailRemitente(), timeoutSegundos);
+
+        return CommandResponse.builder()
+                .comando(request.getComando())
+                .estado("TIMEOUT")
+                .mensaje("Tiempo de ejecución excedido")
+                .mensajeError("El comando superó el límite de " + timeoutSegundos
+                        + " segundos y fue cancelado. No se aplicó ningún cambio; "
+                        + "intente con un filtro más específico o más tarde.")
+                .build();
+    }
+
+    private CommandResponse ejecutarComando(CommandRequest request, Usuario usuarioValidado, long inicio) {
         log.info("Ejecutando comando: {} desde: {}", request.getComando(), request.getEmailRemitente());
 
         try {
             // Validar permisos del usuario
-            Usuario usuario = validatorService.validarPermisos(request);
+            Usuario usuario = usuarioValidado != null ? usuarioValidado : validatorService.validarPermisos(request);
 
             // Ejecutar comando según el tipo
             String comando = request.getComando();
+
+            // Listado completo como archivo adjunto: LISBOL["EXPORTAR"], etc.
+            if (listExportService.admite(comando) && listExportService.extraerParametro(request)) {
+                return exportar(request);
+            }
+
             String resultado = switch (comando) {
                 // Comando de ayuda
                 case "HELP" -> ejecutarHELP(request, usuario);
@@ -170,6 +443,10 @@ public class CommandExecutorService {
                     .mensajeError(e.getMessage())
                     .build();
 
+        } catch (QueryTimeoutException | TransactionTimedOutException e) {
+            // Sentencia cancelada por el driver o plazo vencido antes de iniciarla
+            return respuestaTimeout(request, inicio);
+
         } catch (Exception e) {
             log.error("Error inesperado: {}", e.getMessage(), e);
             return CommandResponse.builder()
@@ -200,28 +477,31 @@ public class CommandExecutorService {
     }
 
     private String ejecutarLISUSU(CommandRequest request) {
-        List<Usuario> usuarios;
+        Pagina pagina = extraerPagina(request);
+        List<UsuarioResumen> usuarios;
 
         if (request.getParametros().isEmpty()) {
-            usuarios = usuarioService.listarTodos();
+            usuarios = pagina == null ? usuarioService.listarTodos()
+                    : usuarioService.listarDesde(pagina.cursor(), pagina.limite());
         } else {
             parserService.validarNumeroParametros(request, 1);
             String rol = request.getParametros().get(0);
-            usuarios = usuarioService.listarPorRol(rol);
+            usuarios = pagina == null ? usuarioService.listarPorRol(rol)
+                    : usuarioService.listarPorRolDesde(rol, pagina.cursor(), pagina.limite());
         }
 
-        return formatter.formatUsuarios(usuarios);
+        return formatter.formatUsuarios(usuarios) + continuacion(request, pagina, usuarios, UsuarioResumen::id);
     }
 
     private String ejecutarGETUSU(CommandRequest request) {
         parserService.validarNumeroParametros(request, 1);
         String parametro = request.getParametros().get(0);
 
-        Usuario usuario;
+        UsuarioResumen usuario;
         try {
             // Intentar como ID numérico
             Long id = Long.parseLong(parametro);
-            usuario = usuarioService.obtenerPorId(id);
+            usuario = usuarioService.obtenerResumen(id);
         } catch (NumberFormatException e) {
             // Si no es número, buscar por CI
             usuario = usuarioService.obtenerPorCI(parametro);
@@ -273,14 +553,17 @@ public class CommandExecutorService {
     }
 
     private String ejecutarLISBOL(CommandRequest request) {
-        List<Boleto> boletos;
+        Pagina pagina = extraerPagina(request);
+        List<BoletoResumen> boletos;
 
         if (request.getParametros().isEmpty()) {
-            boletos = boletoService.listarTodos();
+            boletos = pagina == null ? boletoService.listarTodos()
+                    : boletoService.listarDesde(pagina.cursor(), pagina.limite());
         } else {
             parserService.validarNumeroParametros(request, 1);
             Long viajeId = Long.parseLong(request.getParametros().get(0));
-            boletos = boletoService.listarPorViaje(viajeId);
+            boletos = pagina == null ? boletoService.listarPorViaje(viajeId)
+                    : boletoService.listarPorViajeDesde(viajeId, pagina.cursor(), pagina.limite());
         }
 
         StringBuilder sb = new StringBuilder();
@@ -291,6 +574,7 @@ public class CommandExecutorService {
             sb.append(formatter.formatBoleto(boletos.get(i))).append("\n");
         }
 
+        sb.append(continuacion(request, pagina, boletos, BoletoResumen::id));
         return sb.toString();
     }
 
@@ -298,7 +582,7 @@ public class CommandExecutorService {
         parserService.validarNumeroParametros(request, 1);
         Long id = Long.parseLong(request.getParametros().get(0));
 
-        Boleto boleto = boletoService.obtenerPorId(id);
+        BoletoResumen boleto = boletoService.obtenerResumen(id);
 
         return formatter.formatBoleto(boleto);
     }
@@ -334,7 +618,9 @@ public class CommandExecutorService {
     }
 
     private String ejecutarLISENC(CommandRequest request) {
-        List<Encomienda> encomiendas = encomiendaService.listarTodas();
+        Pagina pagina = extraerPagina(request);
+        List<EncomiendaResumen> encomiendas = pagina == null ? encomiendaService.listarTodas()
+                : encomiendaService.listarDesde(pagina.cursor(), pagina.limite());
 
         StringBuilder sb = new StringBuilder();
         sb.append("Total: ").append(encomiendas.size()).append(" encomienda(s)\n\n");
@@ -344,6 +630,7 @@ public class CommandExecutorService {
             sb.append(formatter.formatEncomienda(encomiendas.get(i))).append("\n");
         }
 
+        sb.append(continuacion(request, pagina, encomiendas, EncomiendaResumen::ventaId));
         return sb.toString();
     }
 
@@ -351,7 +638,7 @@ public class CommandExecutorService {
         parserService.validarNumeroParametros(request, 1);
         Long ventaId = Long.parseLong(request.getParametros().get(0));
 
-        Encomienda encomienda = encomiendaService.obtenerPorVentaId(ventaId);
+        EncomiendaResumen encomienda = encomiendaService.obtenerPorVentaId(ventaId);
 
         return formatter.formatEncomienda(encomienda);
     }
@@ -377,18 +664,20 @@ public class CommandExecutorService {
     }
 
     private String ejecutarLISVEH(CommandRequest request) {
-        List<Vehiculo> vehiculos = vehiculoService.listarTodos();
-        return formatter.formatVehiculos(vehiculos);
+        Pagina pagina = extraerPagina(request);
+        List<VehiculoResumen> vehiculos = pagina == null ? vehiculoService.listarTodos()
+                : vehiculoService.listarDesde(pagina.cursor(), pagina.limite());
+        return formatter.formatVehiculos(vehiculos) + continuacion(request, pagina, vehiculos, VehiculoResumen::id);
     }
 
     private String ejecutarGETVEH(CommandRequest request) {
         parserService.validarNumeroParametros(request, 1);
         String parametro = request.getParametros().get(0);
 
-        Vehiculo vehiculo;
+        VehiculoResumen vehiculo;
         try {
             Long id = Long.parseLong(parametro);
-            vehiculo = vehiculoService.obtenerPorId(id);
+            vehiculo = vehiculoService.obtenerResumen(id);
         } catch (NumberFormatException e) {
             vehiculo = vehiculoService.obtenerPorPlaca(parametro);
         }
@@ -439,15 +728,17 @@ public class CommandExecutorService {
     }
 
     private String ejecutarLISRUT(CommandRequest request) {
-        List<Ruta> rutas = rutaService.listarTodas();
-        return formatter.formatRutas(rutas);
+        Pagina pagina = extraerPagina(request);
+        List<RutaResumen> rutas = pagina == null ? rutaService.listarTodas()
+                : rutaService.listarDesde(pagina.cursor(), pagina.limite());
+        return formatter.formatRutas(rutas) + continuacion(request, pagina, rutas, RutaResumen::id);
     }
 
     private String ejecutarGETRUT(CommandRequest request) {
         parserService.validarNumeroParametros(request, 1);
         Long id = Long.parseLong(request.getParametros().get(0));
 
-        Ruta ruta = rutaService.obtenerPorId(id);
+        RutaResumen ruta = rutaService.obtenerResumen(id);
 
         return formatter.formatRuta(ruta);
     }
@@ -493,17 +784,20 @@ public class CommandExecutorService {
     }
 
     private String ejecutarLISVIA(CommandRequest request) {
-        List<Viaje> viajes = viajeService.listarTodos();
-        return formatter.formatViajes(viajes);
+        Pagina pagina = extraerPagina(request);
+        List<ViajeResumen> viajes = pagina == null ? viajeService.listarTodos()
+                : viajeService.listarDesde(pagina.cursor(), pagina.limite());
+        return formatter.formatViajes(viajes) + continuacion(request, pagina, viajes, ViajeResumen::id);
     }
 
     private String ejecutarGETVIA(CommandRequest request) {
         parserService.validarNumeroParametros(request, 1);
         Long id = Long.parseLong(request.getParametros().get(0));
 
-        Viaje viaje = viajeService.obtenerPorId(id);
+        ViajeResumen viaje = viajeService.obtenerResumen(id);
+        int disponibles = boletoService.asientosDisponibles(id, viaje.asientosTotales());
 
-        return formatter.formatViaje(viaje);
+        return formatter.formatViajeConDisponibles(viaje, disponibles);
     }
 
     private String ejecutarUPDVIA(CommandRequest request) {
@@ -534,16 +828,18 @@ public class CommandExecutorService {
     // ==================== COMANDOS DE VENTAS ====================
 
     private String ejecutarLISVEN(CommandRequest request) {
-        List<Venta> ventas = ventaService.listarTodas();
-        return formatter.formatVentas(ventas);
+        Pagina pagina = extraerPagina(request);
+        List<VentaResumen> ventas = pagina == null ? ventaService.listarTodas()
+                : ventaService.listarDesde(pagina.cursor(), pagina.limite());
+        return formatter.formatVentas(ventas) + continuacion(request, pagina, ventas, VentaResumen::id);
     }
 
     private String ejecutarGETVEN(CommandRequest request) {
         parserService.validarNumeroParametros(request, 1);
         Long id = Long.parseLong(request.getParametros().get(0));
 
-        Venta venta = ventaService.obtenerPorId(id);
-        List<PagoVenta> pagos = pagoService.listarPorVenta(id);
+        VentaResumen venta = ventaService.obtenerResumen(id);
+        List<PagoResumen> pagos = pagoService.listarPorVenta(id);
 
         return formatter.formatVentaConPagos(venta, pagos);
     }
@@ -565,19 +861,108 @@ public class CommandExecutorService {
     }
 
     private String ejecutarLISPAG(CommandRequest request) {
-        List<PagoVenta> pagos = pagoService.listarTodos();
-        return formatter.formatPagos(pagos);
+        Pagina pagina = extraerPagina(request);
+        List<PagoResumen> pagos = pagina == null ? pagoService.listarTodos()
+                : pagoService.listarDesde(pagina.cursor(), pagina.limite());
+        return formatter.formatPagos(pagos) + continuacion(request, pagina, pagos, PagoResumen::id);
     }
 
     private String ejecutarGETPAG(CommandRequest request) {
         parserService.validarNumeroParametros(request, 1);
         Long id = Long.parseLong(request.getParametros().get(0));
 
-        PagoVenta pago = pagoService.obtenerPorId(id);
+        PagoResumen pago = pagoService.obtenerResumen(id);
 
         return formatter.formatPago(pago);
     }
 
+    // ==================== EXPORTACIÓN DE LISTADOS ====================
+
+    /**
+     * Genera el listado completo en un archivo que se adjunta a la respuesta.
+     * Los parámetros de paginación se ignoran.
+     */
+    private CommandResponse exportar(CommandRequest request) {
+        extraerPagina(request);
+
+        ListExportService.Exportacion exportacion = switch (request.getComando()) {
+            case "LISBOL" -> {
+                parserService.validarNumeroParametros(request, 0, 1);
+                yield listExportService.exportarBoletos(request.getParametros().isEmpty() ? null
+                        : Long.parseLong(request.getParametros().get(0)));
+            }
+            case "LISVEN" -> listExportService.exportarVentas();
+            case "LISENC" -> listExportService.exportarEncomiendas();
+            case "LISPAG" -> listExportService.exportarPagos();
+            default -> throw new CommandException("El comando no admite exportación: " + request.getComando());
+        };
+
+        return CommandResponse.builder()
+                .comando(request.getComando())
+                .estado("EXITOSO")
+                .mensaje("Comando ejecutado correctamente")
+                .datos("Total: " + exportacion.filas() + " registro(s) en el archivo adjunto "
+                        + exportacion.archivo().getFileName())
+                .adjunto(exportacion.archivo())
+                .build();
+    }
+
+    // ==================== PAGINACIÓN DE LISTADOS ====================
+
+    /**
+     * Página pedida en un LIS*: filas con id mayor a cursor, hasta limite
+     */
+    private record Pagina(int limite, long cursor) {
+    }
+
+    /**
+     * Quita de los parámetros los de paginación (limite=N, cursor=ID) y
+     * retorna la página pedida, o null para el listado completo
+     */
+    private Pagina extraerPagina(CommandRequest request) {
+        Integer limite = null;
+        long cursor = 0;
+        List<String> restantes = new ArrayList<>();
+
+        for (String parametro : request.getParametros()) {
+            Matcher matcher = PARAMETRO_PAGINA.matcher(parametro.trim());
+            if (!matcher.matches()) {
+                restantes.add(parametro);
+            } else if ("limite".equalsIgnoreCase(matcher.group(1))) {
+                limite = Integer.parseInt(matcher.group(2));
+            } else {
+                cursor = Long.parseLong(matcher.group(2));
+            }
+        }
+        request.setParametros(restantes);
+
+        if (limite == null) {
+            if (cursor == 0 && limitePorDefecto <= 0) {
+                return null;
+            }
+            limite = limitePorDefecto > 0 ? limitePorDefecto : limiteMaximo;
+        }
+        return new Pagina(Math.max(1, Math.min(limite, limiteMaximo)), cursor);
+    }
+
+    /**
+     * Token para pedir la página siguiente; vacío si no hay más filas
+     */
+    private <T> String continuacion(CommandRequest request, Pagina pagina, List<T> filas, Function<T, Long> id) {
+        if (pagina == null || filas.size() < pagina.limite()) {
+            return "";
+        }
+
+        StringBuilder token = new StringBuilder(request.getComando()).append("[");
+        for (String parametro : request.getParametros()) {
+            token.append("\"").append(parametro).append("\",");
+        }
+        token.append("\"limite=").append(pagina.limite()).append("\",")
+                .append("\"cursor=").append(id.apply(filas.get(filas.size() - 1))).append("\"]");
+
+        return "\nSiguiente página - envíe con asunto:\n" + token + "\n";
+    }
+
     /**
      * Ejecuta el comando HELP - Muestra lista de comandos disponibles según el rol
      */
@@ -611,6 +996,11 @@ public class CommandExecutorService {
         sb.append("Envía un correo a: grupo04sa@tecnoweb.org.bo\n");
         sb.append("Asunto: COMANDO[\"param1\",\"param2\",...]\n");
         sb.append("Ejemplo: LISUSU o GETUSU[\"1\"]\n\n");
+        sb.append("Listados por páginas: agregue \"limite=N\" (y \"cursor=ID\" de la respuesta anterior)\n");
+        sb.append("Ejemplo: LISBOL[\"limite=50\"]\n");
+        sb.append("Listado completo como archivo adjunto (LISBOL, LISVEN, LISENC, LISPAG): LISVEN[\"EXPORTAR\"]\n\n");
+        sb.append("Varios comandos en un correo: Asunto LOTE (o LOTE[\"ATOMICO\"] para todo o nada)\n");
+        sb.append("y un comando por línea en el cuerpo. Se responde con un solo correo.\n\n");
         sb.append("⏱️  Respuesta automática en menos de 60 segundos.\n");
 
         return sb.toString();
@@ -0,0 +1,281 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
+import com.grupo04sa.sistema_via_mail.service.CommandValidatorService.ClaseCosto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Carriles de ejecución por clase de costo
+ *
+ * Escrituras (INSBOL, INSENC, INSPAG...), consultas por id y listados corren
+ * en carriles separados, cada uno con sus propios hilos. Una ráfaga de
+ * listados solo ocupa el carril de listados: una venta espera como máximo a
+ * las otras escrituras, nunca a un findAll. Dentro de cada carril los
+ * comandos de un mismo remitente conservan su orden.
+ *
+ * El ciclo solo espera a las escrituras y consultas. Los listados (solo
+ * lectura) se copian en memoria y siguen en su carril entre ciclos: quedan
+ * en la bandeja mientras corren, los ciclos siguientes los omiten y se
+ * confirman en el primer ciclo después de terminar.
+ */
+@Service
+public class CommandLanes {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandLanes.class);
+
+    private final CommandParserService parserService;
+    private final CommandValidatorService validatorService;
+    private final EmailService emailService;
+    private final MetricsService metricsService;
+
+    @Value("${email.carriles.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${email.carriles.escritura.hilos:4}")
+    private int hilosEscritura;
+
+    @Value("${email.carriles.consulta.hilos:2}")
+    private int hilosConsulta;
+
+    @Value("${email.carriles.listado.hilos:1}")
+    private int hilosListado;
+
+    @Value("${email.carriles.listado.costo:3}")
+    private int costoListado;
+
+    private final Map<ClaseCosto, PartitionedExecutor> carriles = new EnumMap<>(ClaseCosto.class);
+
+    // Listados fuera del ciclo, por Message-ID: en su carril o terminados sin confirmar
+    private final Set<String> listadosEnCurso = ConcurrentHashMap.newKeySet();
+    private final Set<String> listadosTerminados = ConcurrentHashMap.newKeySet();
+
+    public CommandLanes(CommandParserService parserService, CommandValidatorService validatorService,
+            EmailService emailService, MetricsService metricsService) {
+        this.parserService = parserService;
+        this.validatorService = validatorService;
+        this.emailService = emailService;
+        this.metricsService = metricsService;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        // Colas sin tope: los correos del ciclo ya están en memoria y encolar
+        // nunca debe frenar una escritura detrás de un carril lleno
+        carriles.put(ClaseCosto.ESCRITURA,
+                new PartitionedExecutor("carril.escritura", hilosEscritura, Integer.MAX_VALUE, metricsService));
+        carriles.put(ClaseCosto.CONSULTA,
+                new PartitionedExecutor("carril.consulta", hilosConsulta, Integer.MAX_VALUE, metricsService));
+        carriles.put(ClaseCosto.LISTADO,
+                new PartitionedExecutor("carril.listado", hilosListado, Integer.MAX_VALUE, metricsService));
+        metricsService.registrarIndicador("carril.listado.en_curso", listadosEnCurso::size);
+        log.info("Carriles habilitados - escritura: {}, consulta: {}, listado: {} hilo(s)",
+                hilosEscritura, hilosConsulta, hilosListado);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Clase de costo del correo según el comando del asunto. Un LOTE toma la
+     * clase de su línea más pesada (un lote de listados va al carril de
+     * listados); si no se puede parsear se trata como consulta, ya que solo
+     * se responde el error.
+     */
+    public ClaseCosto clasificar(Message mensaje) {
+        String comando = parserService.extraerComando(emailService.getAsunto(mensaje));
+        if (!CommandValidatorService.COMANDO_LOTE.equals(comando)) {
+            return validatorService.clasificarCosto(comando);
+        }
+        ClaseCosto clase = ClaseCosto.CONSULTA;
+        for (CommandRequest linea : lineasLote(mensaje)) {
+            ClaseCosto claseLinea = validatorService.clasificarCosto(linea.getComando());
+            if (peso(claseLinea) > peso(clase)) {
+                clase = claseLinea;
+            }
+        }
+        return clase;
+    }
+
+    /**
+     * Indica si el correo no modifica datos: un listado, o un LOTE sin
+     * escrituras. Solo estos pueden correr fuera del ciclo (un reproceso
+     * tras una caída no duplica nada).
+     */
+    private boolean soloLectura(Message mensaje) {
+        String comando = parserService.extraerComando(emailService.getAsunto(mensaje));
+        if (!CommandValidatorService.COMANDO_LOTE.equals(comando)) {
+            return validatorService.clasificarCosto(comando) != ClaseCosto.ESCRITURA;
+        }
+        List<CommandRequest> lineas = lineasLote(mensaje);
+        return !lineas.isEmpty() && lineas.stream()
+                .noneMatch(linea -> validatorService.clasificarCosto(linea.getComando()) == ClaseCosto.ESCRITURA);
+    }
+
+    private List<CommandRequest> lineasLote(Message mensaje) {
+        try {
+            List<CommandRequest> lineas = parserService.parsear(mensaje, emailService.obtenerEmailRemitente(mensaje))
+                    .getLote();
+            return lineas != null ? lineas : List.of();
+        } catch (RuntimeException e) {
+            return List.of();
+        }
+    }
+
+    private static int peso(ClaseCosto clase) {
+        return switch (clase) {
+            case LISTADO -> 2;
+            case ESCRITURA -> 1;
+            case CONSULTA -> 0;
+        };
+    }
+
+    /**
+     * Costo en tokens del correo para el límite por remitente. Un LOTE cuesta
+     * la suma de sus líneas (no se puede usar para saltar el límite); si no
+     * se puede parsear cuesta 1, ya que solo se responde el error.
+     */
+    public int costo(Message mensaje) {
+        String comando = parserService.extraerComando(emailService.getAsunto(mensaje));
+        if (!CommandValidatorService.COMANDO_LOTE.equals(comando)) {
+            return costoComando(comando);
+        }
+        int costo = 0;
+        for (CommandRequest linea : lineasLote(mensaje)) {
+            costo += costoComando(linea.getComando());
+        }
+        return Math.max(1, costo);
+    }
+
+    private int costoComando(String comando) {
+        return validatorService.clasificarCosto(comando) == ClaseCosto.LISTADO ? Math.max(1, costoListado) : 1;
+    }
+
+    /**
+     * Quita de los correos leídos los listados que siguen en su carril desde
+     * un ciclo anterior y confirma (marca) los que ya terminaron. Debe
+     * llamarse sobre lo leído de la bandeja, antes de planificar el ciclo.
+     */
+    public List<Message> filtrarEnCurso(List<Message> mensajes) {
+        if (!habilitado || mensajes.isEmpty() || (listadosEnCurso.isEmpty() && listadosTerminados.isEmpty())) {
+            return mensajes;
+        }
+
+        Set<String> vistos = new HashSet<>();
+        List<Message> pendientes = new ArrayList<>(mensajes.size());
+        for (Message mensaje : mensajes) {
+            String id = emailService.obtenerMessageId(mensaje);
+            if (id == null) {
+                pendientes.add(mensaje);
+                continue;
+            }
+            vistos.add(id);
+            // En curso antes que terminado: al terminar se agrega a terminados
+            // y recién después se quita de en curso
+            if (listadosEnCurso.contains(id)) {
+                continue;
+            }
+            if (listadosTerminados.remove(id)) {
+                emailService.marcarComoLeido(mensaje);
+                metricsService.incrementar("carril.listado.confirmados");
+                continue;
+            }
+            pendientes.add(mensaje);
+        }
+        // Los que ya no están en la bandeja no se van a confirmar
+        listadosTerminados.retainAll(vistos);
+        return pendientes;
+    }
+
+    /**
+     * Reparte los correos en sus carriles. Espera a las escrituras y
+     * consultas (se marcan al terminar cada una); los listados de solo
+     * lectura siguen en su carril sin demorar el ciclo.
+     *
+     * @param ejecutar Procesa un correo (sin marcarlo)
+     */
+    public void procesar(List<Message> mensajes, Consumer<Message> ejecutar) throws InterruptedException {
+        Map<Message, ClaseCosto> delCiclo = new LinkedHashMap<>();
+        for (Message mensaje : mensajes) {
+            ClaseCosto clase = clasificar(mensaje);
+            metricsService.incrementar("carril." + clase.name().toLowerCase(Locale.ROOT) + ".comandos");
+            if (clase != ClaseCosto.LISTADO || !desprender(mensaje, ejecutar)) {
+                delCiclo.put(mensaje, clase);
+            }
+        }
+
+        CountDownLatch pendientes = new CountDownLatch(delCiclo.size());
+        for (Map.Entry<Message, ClaseCosto> entrada : delCiclo.entrySet()) {
+            Message mensaje = entrada.getKey();
+            carriles.get(entrada.getValue()).ejecutar(emailService.obtenerEmailRemitente(mensaje), () -> {
+                try {
+                    ejecutar.accept(mensaje);
+                    emailService.marcarComoLeido(mensaje);
+                } finally {
+                    pendientes.countDown();
+                }
+            });
+        }
+        pendientes.await();
+    }
+
+    /**
+     * Encola un listado sobre una copia en memoria del correo, independiente
+     * de la sesión de la bandeja. Retorna false si debe correr en el ciclo
+     * (sin Message-ID, con escrituras o sin poder copiarlo).
+     */
+    private boolean desprender(Message mensaje, Consumer<Message> ejecutar) throws InterruptedException {
+        String id = emailService.obtenerMessageId(mensaje);
+        if (id == null || !(mensaje instanceof MimeMessage original) || !soloLectura(mensaje)) {
+            return false;
+        }
+        MimeMessage copia;
+        try {
+            copia = new MimeMessage(original);
+        } catch (MessagingException e) {
+            log.debug("No se pudo copiar el listado {}: {}", id, e.getMessage());
+            return false;
+        }
+
+        listadosEnCurso.add(id);
+        carriles.get(ClaseCosto.LISTADO).ejecutar(emailService.obtenerEmailRemitente(mensaje), () -> {
+            try {
+                ejecutar.accept(copia);
+            } finally {
+                listadosTerminados.add(id);
+                listadosEnCurso.remove(id);
+            }
+        });
+        return true;
+    }
+
+    @PreDestroy
+    public void detener() {
+        carriles.values().forEach(PartitionedExecutor::detener);
+    }
+}
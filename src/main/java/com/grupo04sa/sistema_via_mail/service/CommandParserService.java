@@ -1,5 +1,6 @@
 package com.grupo04sa.sistema_via_mail.service;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -7,6 +8,7 @@ import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
@@ -14,10 +16,15 @@ import com.grupo04sa.sistema_via_mail.exception.CommandException;
 
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
 
 /**
  * Servicio para parsear comandos desde el asunto del correo
  * Formato esperado: COMANDO["param1","param2",param3]
+ *
+ * Con asunto LOTE (o LOTE["ATOMICO"]) los comandos van en el cuerpo, uno por
+ * línea, con el mismo formato
  */
 @Service
 public class CommandParserService {
@@ -27,6 +34,9 @@ public class CommandParserService {
     // Patrón: COMANDO seguido de [ params ] opcional
     private static final Pattern COMMAND_PATTERN = Pattern.compile("^([A-Z]+)(?:\\[(.*)\\])?$");
 
+    @Value("${email.lote.maximo:50}")
+    private int maximoLote;
+
     /**
      * Parsea el mensaje de correo completo y extrae el comando y parámetros
      * 
@@ -37,12 +47,83 @@ public class CommandParserService {
     public CommandRequest parsear(Message mensaje, String emailRemitente) {
         try {
             String asunto = mensaje.getSubject();
-            return parse(asunto, emailRemitente);
+            CommandRequest request = parse(asunto, emailRemitente);
+            if (CommandValidatorService.COMANDO_LOTE.equals(request.getComando())) {
+                request.setLote(parsearLote(mensaje, emailRemitente));
+            }
+            return request;
         } catch (MessagingException e) {
             throw new CommandException("Error al obtener asunto del mensaje: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Parsea en una pasada los comandos del cuerpo de un LOTE, uno por línea.
+     * Se ignoran líneas vacías y citas (>) y se corta en la firma (-- ).
+     * Una línea inválida invalida el lote completo, sin ejecutar nada.
+     */
+    private List<CommandRequest> parsearLote(Message mensaje, String emailRemitente) throws MessagingException {
+        String cuerpo;
+        try {
+            cuerpo = extraerTexto(mensaje);
+        } catch (IOException e) {
+            throw new CommandException("Error al leer el cuerpo del lote: " + e.getMessage(), e);
+        }
+        if (cuerpo == null) {
+            throw new CommandException("El lote no tiene cuerpo de texto con comandos");
+        }
+
+        List<CommandRequest> comandos = new ArrayList<>();
+        String[] lineas = cuerpo.split("\\r?\\n");
+        for (int i = 0; i < lineas.length; i++) {
+            String linea = lineas[i].trim();
+            if (lineas[i].startsWith("-- ")) {
+                break;
+            }
+            if (linea.isEmpty() || linea.startsWith(">")) {
+                continue;
+            }
+            CommandRequest comando;
+            try {
+                comando = parse(linea, emailRemitente);
+            } catch (CommandException e) {
+                throw new CommandException("Línea " + (i + 1) + " del lote: " + e.getMessage(), e);
+            }
+            if (CommandValidatorService.COMANDO_LOTE.equals(comando.getComando())) {
+                throw new CommandException("Línea " + (i + 1) + " del lote: no se admite LOTE dentro de un lote");
+            }
+            comandos.add(comando);
+            if (comandos.size() > maximoLote) {
+                throw new CommandException("El lote supera el máximo de " + maximoLote + " comandos");
+            }
+        }
+
+        if (comandos.isEmpty()) {
+            throw new CommandException("El lote no contiene comandos");
+        }
+        log.debug("Lote parseado: {} comando(s)", comandos.size());
+        return comandos;
+    }
+
+    /**
+     * Texto plano del mensaje (primera parte text/plain si es multipart)
+     */
+    private String extraerTexto(Part parte) throws MessagingException, IOException {
+        if (parte.isMimeType("text/plain")) {
+            return parte.getContent().toString();
+        }
+        if (parte.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) parte.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                String texto = extraerTexto(multipart.getBodyPart(i));
+                if (texto != null) {
+                    return texto;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Parsea el asunto del correo y extrae el comando y parámetros
      * 
@@ -82,6 +163,19 @@ public class CommandParserService {
                 .build();
     }
 
+    /**
+     * Extrae solo el código de comando del asunto, sin parsear parámetros
+     *
+     * @return Código del comando o null si el asunto no tiene formato válido
+     */
+    public String extraerComando(String asunto) {
+        if (asunto == null) {
+            return null;
+        }
+        Matcher matcher = COMMAND_PATTERN.matcher(asunto.trim());
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
     /**
      * Parsea la lista de parámetros
      * Soporta strings entre comillas dobles y números sin comillas
@@ -0,0 +1,235 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
+import com.grupo04sa.sistema_via_mail.dto.CommandResponse;
+import com.grupo04sa.sistema_via_mail.model.Usuario;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Message;
+
+/**
+ * Pipeline por etapas para los correos de un ciclo:
+ * lectura (scheduler) → parseo → autorización → ejecución → respuesta → confirmación
+ *
+ * Cada etapa tiene sus propios hilos y una cola acotada de entrada, así el
+ * parseo y la autorización de unos correos se solapan con la ejecución en BD
+ * y el envío SMTP de otros. Las métricas pipeline.* muestran el cuello de
+ * botella (la etapa con la cola llena y la anterior bloqueada).
+ *
+ * Hasta la ejecución las etapas se particionan por remitente: los correos de
+ * un mismo remitente se ejecutan en el orden en que se leyeron (por ejemplo
+ * INSBOL y luego INSPAG de la misma venta).
+ */
+@Component
+public class CommandPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandPipeline.class);
+
+    private final EmailService emailService;
+    private final CommandParserService parserService;
+    private final CommandValidatorService validatorService;
+    private final MessageProcessingService messageProcessingService;
+    private final MetricsService metricsService;
+
+    @Value("${email.pipeline.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${email.pipeline.cola:50}")
+    private int capacidadCola;
+
+    @Value("${email.pipeline.parseo.hilos:1}")
+    private int hilosParseo;
+
+    @Value("${email.pipeline.autorizacion.hilos:2}")
+    private int hilosAutorizacion;
+
+    @Value("${email.pipeline.ejecucion.hilos:4}")
+    private int hilosEjecucion;
+
+    @Value("${email.pipeline.respuesta.hilos:2}")
+    private int hilosRespuesta;
+
+    @Value("${email.pipeline.confirmacion.hilos:1}")
+    private int hilosConfirmacion;
+
+    @Value("${email.pipeline.espera-maxima-segundos:600}")
+    private long esperaMaximaSegundos;
+
+    private List<PipelineStage<CorreoEnProceso>> etapas;
+
+    public CommandPipeline(EmailService emailService, CommandParserService parserService,
+            CommandValidatorService validatorService, MessageProcessingService messageProcessingService,
+            MetricsService metricsService) {
+        this.emailService = emailService;
+        this.parserService = parserService;
+        this.validatorService = validatorService;
+        this.messageProcessingService = messageProcessingService;
+        this.metricsService = metricsService;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+
+        PipelineStage<CorreoEnProceso> parseo = etapaPorRemitente("parseo", this::parsear);
+        PipelineStage<CorreoEnProceso> autorizacion = etapaPorRemitente("autorizacion", this::autorizar);
+        PipelineStage<CorreoEnProceso> ejecucion = etapaPorRemitente("ejecucion", this::ejecutar);
+        PipelineStage<CorreoEnProceso> respuesta = etapa("respuesta", this::responder);
+        PipelineStage<CorreoEnProceso> confirmacion = etapa("confirmacion", this::confirmar);
+
+        parseo.conectar(autorizacion).conectar(ejecucion).conectar(respuesta).conectar(confirmacion);
+
+        parseo.iniciar(hilosParseo);
+        autorizacion.iniciar(hilosAutorizacion);
+        ejecucion.iniciar(hilosEjecucion);
+        respuesta.iniciar(hilosRespuesta);
+        confirmacion.iniciar(hilosConfirmacion);
+
+        etapas = List.of(parseo, autorizacion, ejecucion, respuesta, confirmacion);
+        etapas.forEach(etapa -> etapa.descartarCon(this::descartar));
+        log.info("Pipeline de comandos habilitado - hilos: parseo={}, autorización={}, ejecución={}, "
+                + "respuesta={}, confirmación={}", hilosParseo, hilosAutorizacion, hilosEjecucion,
+                hilosRespuesta, hilosConfirmacion);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Ingresa los correos leídos al pipeline y espera a que todos estén
+     * confirmados (marcados), para que el cierre posterior de la bandeja
+     * solo aplique mensajes ya procesados. La espera está acotada por
+     * email.pipeline.espera-maxima-segundos: lo que no terminó queda sin
+     * marcar y se vuelve a leer en otro ciclo.
+     */
+    public void procesar(List<Message> mensajes) throws InterruptedException {
+        CountDownLatch pendientes = new CountDownLatch(mensajes.size());
+
+        for (Message mensaje : mensajes) {
+            long inicio = System.nanoTime();
+            CorreoEnProceso correo = new CorreoEnProceso(mensaje, pendientes);
+            // El remitente se lee al ingresar: es la clave de partición de las etapas
+            correo.emailRemitente = emailService.obtenerEmailRemitente(mensaje);
+            etapas.get(0).enviar(correo);
+            metricsService.registrarTiempo("pipeline.lectura.bloqueo", inicio);
+            metricsService.incrementar("pipeline.lectura.procesados");
+        }
+
+        if (!pendientes.await(Math.max(1, esperaMaximaSegundos), TimeUnit.SECONDS)) {
+            metricsService.incrementar("pipeline.espera.vencida");
+            log.warn("Pipeline: {} de {} correo(s) sin confirmar tras {} s - quedan en la bandeja",
+                    pendientes.getCount(), mensajes.size(), esperaMaximaSegundos);
+        }
+    }
+
+    private void parsear(CorreoEnProceso correo) {
+        try {
+            correo.request = parserService.parsear(correo.mensaje, correo.emailRemitente);
+            correo.messageId = emailService.obtenerMessageId(correo.mensaje);
+        } catch (Exception e) {
+            correo.error = e;
+        }
+    }
+
+    /**
+     * Si la autorización falla, la etapa de ejecución vuelve a validar y
+     * arma la respuesta de error habitual
+     */
+    private void autorizar(CorreoEnProceso correo) {
+        if (correo.error != null) {
+            return;
+        }
+        try {
+            correo.usuario = validatorService.validarPermisos(correo.request);
+        } catch (Exception e) {
+            log.debug("Autorización rechazada para {}: {}", correo.emailRemitente, e.getMessage());
+        }
+    }
+
+    private void ejecutar(CorreoEnProceso correo) {
+        if (correo.error != null) {
+            return;
+        }
+        try {
+            correo.response = messageProcessingService.ejecutar(correo.messageId, correo.request, correo.usuario);
+        } catch (Exception e) {
+            correo.error = e;
+        }
+    }
+
+    private void responder(CorreoEnProceso correo) {
+        if (correo.error != null) {
+            String comando = correo.request != null ? correo.request.getComando() : null;
+            messageProcessingService.responderError(correo.emailRemitente, comando, correo.error);
+            return;
+        }
+        messageProcessingService.responder(correo.emailRemitente, correo.response);
+    }
+
+    private void confirmar(CorreoEnProceso correo) {
+        try {
+            emailService.marcarComoLeido(correo.mensaje);
+        } finally {
+            correo.pendientes.countDown();
+        }
+    }
+
+    /**
+     * Correo que una etapa no pudo entregar: no se marca (queda en la bandeja
+     * para otro ciclo) pero se descuenta para no bloquear el ciclo
+     */
+    private void descartar(CorreoEnProceso correo) {
+        log.warn("Correo de {} descartado del pipeline - queda sin marcar", correo.emailRemitente);
+        correo.pendientes.countDown();
+    }
+
+    private PipelineStage<CorreoEnProceso> etapa(String nombre,
+            Consumer<CorreoEnProceso> trabajo) {
+        return new PipelineStage<>(nombre, capacidadCola, trabajo, metricsService);
+    }
+
+    private PipelineStage<CorreoEnProceso> etapaPorRemitente(String nombre,
+            Consumer<CorreoEnProceso> trabajo) {
+        return new PipelineStage<>(nombre, capacidadCola, trabajo, correo -> correo.emailRemitente, metricsService);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (etapas != null) {
+            etapas.forEach(PipelineStage::detener);
+        }
+    }
+
+    /**
+     * Estado de un correo a lo largo de las etapas
+     */
+    private static class CorreoEnProceso {
+        private final Message mensaje;
+        private final CountDownLatch pendientes;
+        private String emailRemitente;
+        private String messageId;
+        private CommandRequest request;
+        private Usuario usuario;
+        private CommandResponse response;
+        private Exception error;
+
+        private CorreoEnProceso(Message mensaje, CountDownLatch pendientes) {
+            this.mensaje = mensaje;
+            this.pendientes = pendientes;
+        }
+    }
+}
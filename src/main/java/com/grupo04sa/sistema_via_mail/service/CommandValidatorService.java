@@ -50,6 +50,18 @@ public class CommandValidatorService {
             "LISVIA", "GETVIA" // Consultas de viajes
     );
 
+    /**
+     * Clase de costo de un comando, para asignarle carril de ejecución
+     */
+    public enum ClaseCosto {
+        ESCRITURA, // Altas y modificaciones: cortas y de cara al cliente
+        CONSULTA, // GET y HELP: una fila por id
+        LISTADO // LIS: recorren tablas completas
+    }
+
+    // Varios comandos en el cuerpo del correo (uno por línea)
+    public static final String COMANDO_LOTE = "LOTE";
+
     public CommandValidatorService(UsuarioRepository usuarioRepository) {
         this.usuarioRepository = usuarioRepository;
     }
@@ -101,6 +113,20 @@ public class CommandValidatorService {
                             ". Debe estar registrado en el sistema para ejecutar comandos.");
         }
 
+        validarComando(usuario, comando);
+        return usuario;
+    }
+
+    /**
+     * Valida el comando para un usuario ya identificado por validarPermisos
+     * (por ejemplo, cada línea de un LOTE)
+     */
+    public void validarComando(Usuario usuario, String comando) {
+        if (permitAll) {
+            return;
+        }
+        String rol = usuario.getRol();
+
         // Validar permisos según el comando y rol
         if (COMANDOS_ADMIN.contains(comando)) {
             if (!usuario.isAdmin()) {
@@ -115,6 +141,9 @@ public class CommandValidatorService {
         } else if (COMANDOS_LECTURA.contains(comando)) {
             // Cualquier usuario autenticado puede ejecutar comandos de lectura
             log.debug("Comando de lectura permitido para: {}", rol);
+        } else if (COMANDO_LOTE.equals(comando)) {
+            // Cada línea del lote se valida al ejecutarla
+            log.debug("Lote permitido para: {}", rol);
         } else {
             // Comando no reconocido
             throw new IllegalStateException(
@@ -123,8 +152,6 @@ public class CommandValidatorService {
 
         log.info("Permisos validados correctamente para {} ejecutando {}",
                 usuario.getNombreCompleto(), comando);
-
-        return usuario;
     }
 
     /**
@@ -147,4 +174,26 @@ public class CommandValidatorService {
     public boolean esComandoLectura(String comando) {
         return COMANDOS_LECTURA.contains(comando);
     }
+
+    /**
+     * Clasifica el comando según los grupos de permisos y su prefijo
+     * Los comandos desconocidos se tratan como consulta
+     */
+    public ClaseCosto clasificarCosto(String comando) {
+        if (comando == null) {
+            return ClaseCosto.CONSULTA;
+        }
+        if (COMANDOS_ADMIN.contains(comando) || COMANDO_LOTE.equals(comando)) {
+            return ClaseCosto.ESCRITURA;
+        }
+        if (COMANDOS_SECRETARIA.contains(comando) || COMANDOS_LECTURA.contains(comando)) {
+            if (comando.startsWith("LIS")) {
+                return ClaseCosto.LISTADO;
+            }
+            if (comando.startsWith("INS")) {
+                return ClaseCosto.ESCRITURA;
+            }
+        }
+        return ClaseCosto.CONSULTA;
+    }
 }
@@ -1,11 +1,9 @@
 package com.grupo04sa.sistema_via_mail.service;
 
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.Date;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Properties;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,18 +12,16 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.Address;
-import jakarta.mail.Flags;
-import jakarta.mail.Folder;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
-import jakarta.mail.Session;
-import jakarta.mail.Store;
 import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
 
 /**
  * Servicio para gestión de correos electrónicos
- * Lectura POP3 y envío SMTP
+ * Lectura de la bandeja (POP3 o IMAP según configuración) y envío SMTP
  */
 @Service
 public class EmailService {
@@ -33,21 +29,10 @@ public class EmailService {
     private static final Logger log = LoggerFactory.getLogger(EmailService.class);
 
     private final JavaMailSender mailSender;
-
-    @Value("${mail.pop3.host}")
-    private String pop3Host;
-
-    @Value("${mail.pop3.port}")
-    private int pop3Port;
-
-    @Value("${mail.pop3.username}")
-    private String pop3Username;
-
-    @Value("${mail.pop3.password}")
-    private String pop3Password;
-
-    @Value("${mail.pop3.ssl.enable}")
-    private boolean pop3SslEnable;
+    private final MailboxReader mailboxReader;
+    private final SmtpTransportPool smtpTransportPool;
+    private final ReplyQueue replyQueue;
+    private final ReplyOutboxService replyOutboxService;
 
     @Value("${mail.from.address}")
     private String fromAddress;
@@ -55,113 +40,29 @@ public class EmailService {
     @Value("${mail.from.name}")
     private String fromName;
 
-    @Value("${mail.filter.start-date:2025-12-15}")
-    private String filterStartDate;
-
-    // Variables para mantener la conexión POP3 abierta durante el procesamiento
-    private Folder currentFolder = null;
-    private Store currentStore = null;
-
-    public EmailService(JavaMailSender mailSender) {
+    public EmailService(JavaMailSender mailSender, MailboxReader mailboxReader,
+            SmtpTransportPool smtpTransportPool, ReplyQueue replyQueue, ReplyOutboxService replyOutboxService) {
         this.mailSender = mailSender;
+        this.mailboxReader = mailboxReader;
+        this.smtpTransportPool = smtpTransportPool;
+        this.replyQueue = replyQueue;
+        this.replyOutboxService = replyOutboxService;
     }
 
     /**
-     * Lee correos no leídos desde el servidor POP3
+     * Lee los correos pendientes de procesar de la bandeja configurada
      * 
      * @return Lista de mensajes no leídos
      */
     public List<Message> leerCorreosNoLeidos() {
-        List<Message> mensajesNoLeidos = new ArrayList<>();
-
-        try {
-            // Cerrar conexión anterior si existe
-            cerrarConexionPOP3();
-
-            log.debug("Conectando al servidor POP3: {}:{}", pop3Host, pop3Port);
-
-            // Configurar propiedades POP3
-            Properties properties = new Properties();
-            properties.put("mail.store.protocol", "pop3");
-            properties.put("mail.pop3.host", pop3Host);
-            properties.put("mail.pop3.port", pop3Port);
-            properties.put("mail.pop3.ssl.enable", pop3SslEnable);
-            properties.put("mail.pop3.ssl.trust", "*");
-
-            // Crear sesión y conectar
-            Session session = Session.getInstance(properties);
-            currentStore = session.getStore("pop3");
-            currentStore.connect(pop3Host, pop3Username, pop3Password);
-
-            // Abrir carpeta INBOX en modo READ_WRITE
-            currentFolder = currentStore.getFolder("INBOX");
-            currentFolder.open(Folder.READ_WRITE);
-
-            // Obtener todos los mensajes
-            Message[] messages = currentFolder.getMessages();
-            log.debug("Total de mensajes en bandeja: {}", messages.length);
-
-            // Parsear fecha de inicio del filtro
-            LocalDate startDate = LocalDate.parse(filterStartDate);
-            log.info("Filtrando correos desde: {}", startDate);
-
-            // Filtrar mensajes por fecha (POP3 no maneja flags SEEN de forma confiable)
-            // Solo procesamos mensajes que NO estén marcados para eliminación
-            int filtradosPorFecha = 0;
-            for (Message message : messages) {
-                // Verificar que no esté marcado para eliminar
-                if (!message.isSet(Flags.Flag.DELETED)) {
-                    // Verificar fecha del mensaje
-                    Date receivedDate = message.getReceivedDate();
-                    if (receivedDate != null) {
-                        LocalDate messageDate = receivedDate.toInstant()
-                                .atZone(ZoneId.systemDefault())
-                                .toLocalDate();
-
-                        if (!messageDate.isBefore(startDate)) {
-                            mensajesNoLeidos.add(message);
-                        } else {
-                            filtradosPorFecha++;
-                            log.debug("Correo descartado por fecha: {} (anterior a {})",
-                                    messageDate, startDate);
-                        }
-                    } else {
-                        // Si no tiene fecha, lo incluimos por seguridad
-                        mensajesNoLeidos.add(message);
-                    }
-                }
-            }
-
-            if (filtradosPorFecha > 0) {
-                log.info("Correos filtrados por fecha (anteriores a {}): {}",
-                        startDate, filtradosPorFecha);
-            }
-
-            log.info("Correos no leídos encontrados: {}", mensajesNoLeidos.size());
-
-            // Mantener conexión abierta para poder marcar y eliminar mensajes después
-
-        } catch (Exception e) {
-            log.error("Error al leer correos: {}", e.getMessage(), e);
-            cerrarConexionPOP3(); // Cerrar en caso de error
-        }
-
-        return mensajesNoLeidos;
+        return mailboxReader.leerCorreosNoLeidos();
     }
 
     /**
-     * Marca un mensaje como leído (POP3 no soporta flags, así que lo eliminamos)
-     * En POP3, la única forma de evitar reprocesar es eliminar el mensaje
+     * Marca un mensaje como procesado para que no se vuelva a leer
      */
     public void marcarComoLeido(Message message) {
-        try {
-            // POP3 no soporta flags SEEN de forma confiable
-            // La solución es eliminar el mensaje después de procesarlo
-            message.setFlag(Flags.Flag.DELETED, true);
-            log.info("Mensaje marcado para eliminación (procesado correctamente)");
-        } catch (MessagingException e) {
-            log.error("Error al marcar mensaje para eliminar: {}", e.getMessage());
-        }
+        mailboxReader.marcarComoLeido(message);
     }
 
     /**
@@ -191,6 +92,21 @@ public class EmailService {
         return "";
     }
 
+    /**
+     * Extrae la cabecera Message-ID de un mensaje (null si no la tiene)
+     */
+    public String obtenerMessageId(Message message) {
+        try {
+            String[] ids = message.getHeader("Message-ID");
+            if (ids != null && ids.length > 0) {
+                return ids[0].trim();
+            }
+        } catch (MessagingException e) {
+            log.error("Error al obtener Message-ID: {}", e.getMessage());
+        }
+        return null;
+    }
+
     /**
      * Obtiene el email del remitente de un mensaje
      * Método alternativo a getRemitente()
@@ -204,7 +120,15 @@ public class EmailService {
      * Método sobrecargado
      */
     public void enviarCorreo(String destinatario, String asunto, String contenido) {
-        enviarRespuesta(destinatario, asunto, contenido);
+        enviarRespuesta(destinatario, asunto, contenido, null);
+    }
+
+    /**
+     * Envía un correo con un archivo adjunto. El archivo se lee recién al
+     * enviar, por partes, sin cargarlo completo en memoria.
+     */
+    public void enviarCorreo(String destinatario, String asunto, String contenido, Path adjunto) {
+        enviarRespuesta(destinatario, asunto, contenido, adjunto);
     }
 
     /**
@@ -213,18 +137,28 @@ public class EmailService {
      * @param destinatario Email del destinatario
      * @param asunto       Asunto del correo
      * @param contenido    Contenido del mensaje
+     * @param adjunto      Archivo adjunto (null = solo texto)
      */
-    public void enviarRespuesta(String destinatario, String asunto, String contenido) {
+    public void enviarRespuesta(String destinatario, String asunto, String contenido, Path adjunto) {
         try {
             log.debug("Enviando respuesta a: {}", destinatario);
 
-            MimeMessage message = mailSender.createMimeMessage();
-            message.setFrom(new InternetAddress(fromAddress, fromName));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(destinatario));
-            message.setSubject("Re: " + asunto);
-            message.setText(contenido, "UTF-8", "plain");
+            // El outbox guarda solo texto: los adjuntos se envían directo
+            if (replyOutboxService.isHabilitado() && adjunto == null) {
+                replyOutboxService.registrar(destinatario, asunto, contenido);
+                log.debug("Respuesta registrada en outbox para: {}", destinatario);
+                return;
+            }
+
+            MimeMessage message = crearRespuesta(destinatario, asunto, contenido, adjunto);
+
+            if (replyQueue.isHabilitada()) {
+                replyQueue.encolar(message);
+                log.debug("Respuesta encolada para: {}", destinatario);
+                return;
+            }
 
-            mailSender.send(message);
+            smtpTransportPool.enviar(message);
 
             log.info("Respuesta enviada exitosamente a: {}", destinatario);
 
@@ -236,24 +170,42 @@ public class EmailService {
     }
 
     /**
-     * Cierra la conexión POP3 actual y aplica expunge
-     * El parámetro 'true' en folder.close() hace expunge (elimina mensajes marcados
-     * como DELETED)
+     * Arma el mensaje de respuesta sin enviarlo
      */
-    public void cerrarConexionPOP3() {
-        try {
-            if (currentFolder != null && currentFolder.isOpen()) {
-                currentFolder.close(true); // true = expunge (eliminar mensajes marcados como DELETED)
-                log.info("✅ Folder cerrado con expunge - Mensajes marcados eliminados del servidor");
-                currentFolder = null;
-            }
-            if (currentStore != null && currentStore.isConnected()) {
-                currentStore.close();
-                log.debug("Conexión POP3 cerrada");
-                currentStore = null;
-            }
-        } catch (MessagingException e) {
-            log.error("Error al cerrar conexión POP3: {}", e.getMessage());
+    public MimeMessage crearRespuesta(String destinatario, String asunto, String contenido)
+            throws MessagingException, UnsupportedEncodingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        message.setFrom(new InternetAddress(fromAddress, fromName));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(destinatario));
+        message.setSubject("Re: " + asunto);
+        message.setText(contenido, "UTF-8", "plain");
+        return message;
+    }
+
+    /**
+     * Arma el mensaje de respuesta con un archivo de texto adjunto
+     */
+    public MimeMessage crearRespuesta(String destinatario, String asunto, String contenido, Path adjunto)
+            throws MessagingException, IOException {
+        MimeMessage message = crearRespuesta(destinatario, asunto, contenido);
+        if (adjunto == null) {
+            return message;
         }
+
+        MimeBodyPart texto = new MimeBodyPart();
+        texto.setText(contenido, "UTF-8", "plain");
+        MimeBodyPart archivo = new MimeBodyPart();
+        archivo.attachFile(adjunto.toFile(), "text/plain; charset=UTF-8", null);
+
+        message.setContent(new MimeMultipart(texto, archivo));
+        return message;
+    }
+
+    /**
+     * Confirma en el servidor los mensajes marcados durante el ciclo
+     * (expunge en POP3) y libera la bandeja
+     */
+    public void cerrarConexion() {
+        mailboxReader.cerrarConexion();
     }
 }
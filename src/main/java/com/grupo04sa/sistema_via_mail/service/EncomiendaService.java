@@ -6,9 +6,11 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.grupo04sa.sistema_via_mail.dto.EncomiendaResumen;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.exception.ValidationException;
 import com.grupo04sa.sistema_via_mail.model.Encomienda;
@@ -194,8 +196,17 @@ public class EncomiendaService {
     /**
      * Listar todas las encomiendas
      */
-    public List<Encomienda> listarTodas() {
-        return encomiendaRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<EncomiendaResumen> listarTodas() {
+        return encomiendaRepository.findResumenes();
+    }
+
+    /**
+     * Listar encomiendas con venta ID mayor al cursor (una página)
+     */
+    @Transactional(readOnly = true)
+    public List<EncomiendaResumen> listarDesde(Long cursor, int limite) {
+        return encomiendaRepository.findDesde(cursor, PageRequest.of(0, limite));
     }
 
     /**
@@ -208,8 +219,9 @@ public class EncomiendaService {
     /**
      * Obtener encomienda por venta ID
      */
-    public Encomienda obtenerPorVentaId(Long ventaId) {
-        return encomiendaRepository.findByVentaIdWithDetails(ventaId)
+    @Transactional(readOnly = true)
+    public EncomiendaResumen obtenerPorVentaId(Long ventaId) {
+        return encomiendaRepository.findResumenByVentaId(ventaId)
                 .orElseThrow(() -> new EntityNotFoundException("Encomienda con VentaID", ventaId));
     }
 }
@@ -0,0 +1,135 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
+import com.grupo04sa.sistema_via_mail.dto.CommandResponse;
+import com.grupo04sa.sistema_via_mail.repository.ProcessedMessageRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Ejecución exactamente-una-vez por Message-ID + remitente
+ *
+ * Si el proceso cae entre la ejecución y el expunge, el mismo correo vuelve a
+ * leerse en el siguiente ciclo. La reserva en mail_procesados se confirma en
+ * la misma transacción que las escrituras del comando, así un duplicado
+ * recibe la respuesta guardada en lugar de ejecutarse otra vez. Un LRU en
+ * memoria evita la consulta para los duplicados recientes.
+ *
+ * Las respuestas con adjunto (exportaciones) no se guardan ni se reenvían:
+ * el archivo se elimina al vencer su retención. La reserva se revierte (la
+ * exportación solo lee) y un duplicado vuelve a generar el archivo.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final ProcessedMessageRepository processedMessageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsService metricsService;
+
+    @Value("${mail.idempotencia.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${mail.idempotencia.cache:10000}")
+    private int capacidadCache;
+
+    private Map<String, CommandResponse> cache;
+
+    public IdempotencyService(ProcessedMessageRepository processedMessageRepository,
+            @Qualifier("transaccionComando") TransactionTemplate transactionTemplate,
+            MetricsService metricsService) {
+        this.processedMessageRepository = processedMessageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.metricsService = metricsService;
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        int capacidad = Math.max(1, capacidadCache);
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CommandResponse> eldest) {
+                return size() > capacidad;
+            }
+        });
+
+        if (habilitado) {
+            processedMessageRepository.crearTablaSiNoExiste();
+            log.info("Idempotencia por Message-ID habilitada (tabla mail_procesados)");
+        }
+    }
+
+    /**
+     * Ejecuta el comando solo si el correo no fue procesado antes; si ya lo
+     * fue, retorna la respuesta guardada
+     *
+     * @param messageId Cabecera Message-ID (sin ella se ejecuta sin control)
+     */
+    public CommandResponse ejecutarUnaVez(String messageId, CommandRequest request,
+            Supplier<CommandResponse> comando) {
+        if (!habilitado || messageId == null || messageId.isBlank()) {
+            return comando.get();
+        }
+
+        String remitente = request.getEmailRemitente();
+        String clave = messageId + "|" + remitente;
+
+        CommandResponse previa = cache.get(clave);
+        if (previa != null) {
+            metricsService.incrementar("idempotencia.duplicados");
+            log.warn("Correo {} de {} ya procesado - se reenvía la respuesta guardada", messageId, remitente);
+            return previa;
+        }
+
+        CommandResponse[] duplicada = new CommandResponse[1];
+        CommandResponse response = transactionTemplate.execute(status -> {
+            if (!processedMessageRepository.reclamar(messageId, remitente, request.getComando())) {
+                duplicada[0] = processedMessageRepository.buscarRespuesta(messageId, remitente)
+                        .orElseGet(() -> CommandResponse.builder()
+                                .comando(request.getComando())
+                                .estado("DUPLICADO")
+                                .mensaje("Este correo ya fue procesado")
+                                .build());
+                return duplicada[0];
+            }
+
+            CommandResponse resultado = comando.get();
+            if (status.isRollbackOnly() || resultado.getAdjunto() != null) {
+                // Nada se confirma, tampoco la reserva: el correo podrá reintentarse
+                status.setRollbackOnly();
+                return resultado;
+            }
+
+            processedMessageRepository.guardarRespuesta(messageId, remitente, resultado);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(clave, resultado);
+                }
+            });
+            return resultado;
+        });
+
+        if (duplicada[0] != null) {
+            cache.put(clave, duplicada[0]);
+            metricsService.incrementar("idempotencia.duplicados");
+            log.warn("Correo {} de {} ya procesado - se reenvía la respuesta guardada", messageId, remitente);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,92 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.Properties;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+
+/**
+ * Crea conexiones IMAP autenticadas con una Session compartida
+ * Se usa tanto para leer la bandeja como para la escucha IDLE
+ */
+@Component
+@ConditionalOnProperty(name = "mail.ingestion.protocolo", havingValue = "imap")
+public class ImapConnectionFactory {
+
+    @Value("${mail.imap.host:${mail.pop3.host}}")
+    private String imapHost;
+
+    @Value("${mail.imap.port:143}")
+    private int imapPort;
+
+    @Value("${mail.imap.username:${mail.pop3.username}}")
+    private String imapUsername;
+
+    @Value("${mail.imap.password:${mail.pop3.password}}")
+    private String imapPassword;
+
+    @Value("${mail.imap.ssl.enable:false}")
+    private boolean imapSslEnable;
+
+    private Session session;
+    private Session sessionIdle;
+
+    /**
+     * Abre un nuevo Store IMAP conectado (lecturas con timeout de 10 s)
+     */
+    public Store conectar() throws MessagingException {
+        return conectar(obtenerSession());
+    }
+
+    /**
+     * Abre un Store para IDLE: sin timeout de lectura, ya que la conexión
+     * queda bloqueada esperando notificaciones del servidor
+     */
+    public Store conectarParaIdle() throws MessagingException {
+        return conectar(obtenerSessionIdle());
+    }
+
+    private Store conectar(Session sesion) throws MessagingException {
+        Store store = sesion.getStore(protocolo());
+        store.connect(imapHost, imapPort, imapUsername, imapPassword);
+        return store;
+    }
+
+    private synchronized Session obtenerSession() {
+        if (session == null) {
+            Properties properties = crearPropiedades();
+            properties.put("mail." + protocolo() + ".timeout", 10000);
+            session = Session.getInstance(properties);
+        }
+        return session;
+    }
+
+    private synchronized Session obtenerSessionIdle() {
+        if (sessionIdle == null) {
+            sessionIdle = Session.getInstance(crearPropiedades());
+        }
+        return sessionIdle;
+    }
+
+    private Properties crearPropiedades() {
+        String protocolo = protocolo();
+        Properties properties = new Properties();
+        properties.put("mail.store.protocol", protocolo);
+        properties.put("mail." + protocolo + ".host", imapHost);
+        properties.put("mail." + protocolo + ".port", imapPort);
+        properties.put("mail." + protocolo + ".ssl.trust", "*");
+        properties.put("mail." + protocolo + ".connectiontimeout", 10000);
+        // Leer el contenido no debe marcar SEEN antes de procesar el comando
+        properties.put("mail." + protocolo + ".peek", true);
+        return properties;
+    }
+
+    private String protocolo() {
+        return imapSslEnable ? "imaps" : "imap";
+    }
+}
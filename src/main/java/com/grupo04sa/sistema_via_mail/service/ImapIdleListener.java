@@ -0,0 +1,140 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import jakarta.mail.event.MessageCountAdapter;
+import jakarta.mail.event.MessageCountEvent;
+
+import com.sun.mail.imap.IMAPFolder;
+
+/**
+ * Escucha el INBOX con IMAP IDLE en una conexión dedicada y publica
+ * NuevosCorreosEvent apenas el servidor avisa de correos nuevos, sin esperar
+ * al siguiente polling
+ */
+@Component
+@ConditionalOnProperty(name = "mail.ingestion.protocolo", havingValue = "imap")
+public class ImapIdleListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ImapIdleListener.class);
+
+    private static final long ESPERA_MAXIMA_MS = 60000;
+
+    private final ImapConnectionFactory connectionFactory;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${mail.imap.idle.habilitado:true}")
+    private boolean idleHabilitado;
+
+    private volatile boolean activo;
+    private volatile Store store;
+    private volatile IMAPFolder folder;
+
+    public ImapIdleListener(ImapConnectionFactory connectionFactory, ApplicationEventPublisher eventPublisher) {
+        this.connectionFactory = connectionFactory;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!idleHabilitado) {
+            log.info("IMAP IDLE deshabilitado - solo polling");
+            return;
+        }
+        activo = true;
+        Thread.ofPlatform().daemon().name("imap-idle").start(this::escuchar);
+    }
+
+    private void escuchar() {
+        long espera = 1000;
+
+        while (activo) {
+            try {
+                store = connectionFactory.conectarParaIdle();
+                folder = (IMAPFolder) store.getFolder("INBOX");
+                folder.open(Folder.READ_ONLY);
+                folder.addMessageCountListener(new MessageCountAdapter() {
+                    @Override
+                    public void messagesAdded(MessageCountEvent e) {
+                        log.info("IMAP IDLE: {} correo(s) nuevo(s)", e.getMessages().length);
+                        eventPublisher.publishEvent(new NuevosCorreosEvent(e.getMessages().length));
+                    }
+                });
+
+                log.info("Escucha IMAP IDLE activa en INBOX");
+                espera = 1000;
+
+                while (activo && folder.isOpen()) {
+                    folder.idle();
+                }
+            } catch (Exception e) {
+                if (!activo) {
+                    break;
+                }
+                log.warn("Escucha IMAP IDLE interrumpida: {} - reintentando en {} ms", e.getMessage(), espera);
+                dormir(espera);
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_MS);
+            } finally {
+                cerrarStore();
+            }
+        }
+    }
+
+    /**
+     * Los servidores cortan IDLE inactivos (~30 min). Un comando desde otro hilo
+     * interrumpe el IDLE vigente, verifica la conexión y el bucle lo reanuda.
+     */
+    @Scheduled(fixedDelayString = "${mail.imap.idle.renovacion:600000}")
+    public void renovarIdle() {
+        IMAPFolder actual = folder;
+        if (!activo || actual == null || !actual.isOpen()) {
+            return;
+        }
+        try {
+            actual.getMessageCount();
+        } catch (MessagingException e) {
+            log.warn("Conexión IMAP IDLE caída: {}", e.getMessage());
+            cerrarStore();
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        cerrarStore();
+    }
+
+    private void cerrarStore() {
+        Store actual = store;
+        store = null;
+        folder = null;
+        if (actual != null) {
+            try {
+                actual.close();
+            } catch (MessagingException e) {
+                log.debug("Error al cerrar conexión IDLE: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            activo = false;
+        }
+    }
+}
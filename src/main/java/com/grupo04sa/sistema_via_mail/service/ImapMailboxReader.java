@@ -0,0 +1,143 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import jakarta.mail.search.AndTerm;
+import jakarta.mail.search.ComparisonTerm;
+import jakarta.mail.search.FlagTerm;
+import jakarta.mail.search.ReceivedDateTerm;
+import jakarta.mail.search.SearchTerm;
+
+/**
+ * Lectura de la bandeja vía IMAP
+ *
+ * El filtro de no leídos y de fecha se resuelve en el servidor (SEARCH) y los
+ * mensajes procesados se marcan con el flag SEEN en lugar de eliminarse.
+ * El INBOX se mantiene abierto entre ciclos.
+ */
+@Component
+@ConditionalOnProperty(name = "mail.ingestion.protocolo", havingValue = "imap")
+public class ImapMailboxReader implements MailboxReader {
+
+    private static final Logger log = LoggerFactory.getLogger(ImapMailboxReader.class);
+
+    private final ImapConnectionFactory connectionFactory;
+    private final MetricsService metricsService;
+
+    @Value("${mail.filter.start-date:2025-12-15}")
+    private String filterStartDate;
+
+    private Store store;
+    private Folder inbox;
+
+    public ImapMailboxReader(ImapConnectionFactory connectionFactory, MetricsService metricsService) {
+        this.connectionFactory = connectionFactory;
+        this.metricsService = metricsService;
+    }
+
+    @Override
+    public synchronized List<Message> leerCorreosNoLeidos() {
+        try {
+            Folder folder = abrirInbox();
+
+            LocalDate startDate = LocalDate.parse(filterStartDate);
+            Date desde = Date.from(startDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            SearchTerm criterio = new AndTerm(
+                    new FlagTerm(new Flags(Flags.Flag.SEEN), false),
+                    new ReceivedDateTerm(ComparisonTerm.GE, desde));
+
+            long inicio = System.nanoTime();
+            Message[] messages = folder.search(criterio);
+            metricsService.registrarTiempo("imap.comando.busqueda", inicio);
+
+            // Cabeceras de todos los resultados en un solo FETCH
+            if (messages.length > 0) {
+                FetchProfile perfil = new FetchProfile();
+                perfil.add(FetchProfile.Item.ENVELOPE);
+                perfil.add(FetchProfile.Item.FLAGS);
+                inicio = System.nanoTime();
+                folder.fetch(messages, perfil);
+                metricsService.registrarTiempo("imap.comando.cabeceras", inicio);
+            }
+
+            log.info("Correos IMAP no leídos desde {}: {}", startDate, messages.length);
+            return new ArrayList<>(Arrays.asList(messages));
+
+        } catch (Exception e) {
+            log.error("Error al leer correos IMAP: {}", e.getMessage(), e);
+            cerrar();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Marca el mensaje con SEEN en el servidor (se aplica de inmediato)
+     */
+    @Override
+    public void marcarComoLeido(Message message) {
+        try {
+            message.setFlag(Flags.Flag.SEEN, true);
+            log.info("Mensaje marcado como leído (SEEN)");
+        } catch (MessagingException e) {
+            log.error("Error al marcar mensaje como leído: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Los flags SEEN ya quedaron aplicados; el INBOX sigue abierto para el
+     * próximo ciclo
+     */
+    @Override
+    public void cerrarConexion() {
+        log.debug("Ciclo IMAP finalizado - INBOX se mantiene abierto");
+    }
+
+    private Folder abrirInbox() throws MessagingException {
+        if (inbox != null && inbox.isOpen()) {
+            return inbox;
+        }
+        if (store == null || !store.isConnected()) {
+            long inicio = System.nanoTime();
+            store = connectionFactory.conectar();
+            metricsService.registrarTiempo("imap.conexion", inicio);
+        }
+        inbox = store.getFolder("INBOX");
+        inbox.open(Folder.READ_WRITE);
+        return inbox;
+    }
+
+    @PreDestroy
+    public synchronized void cerrar() {
+        try {
+            if (inbox != null && inbox.isOpen()) {
+                inbox.close(false);
+            }
+            if (store != null) {
+                store.close();
+            }
+        } catch (MessagingException e) {
+            log.debug("Error al cerrar conexión IMAP: {}", e.getMessage());
+        } finally {
+            inbox = null;
+            store = null;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
+import com.grupo04sa.sistema_via_mail.exception.CommandException;
+import com.grupo04sa.sistema_via_mail.model.Boleto;
+import com.grupo04sa.sistema_via_mail.model.Encomienda;
+import com.grupo04sa.sistema_via_mail.model.PagoVenta;
+import com.grupo04sa.sistema_via_mail.model.Venta;
+import com.grupo04sa.sistema_via_mail.repository.BoletoRepository;
+import com.grupo04sa.sistema_via_mail.repository.EncomiendaRepository;
+import com.grupo04sa.sistema_via_mail.repository.PagoVentaRepository;
+import com.grupo04sa.sistema_via_mail.repository.VentaRepository;
+import com.grupo04sa.sistema_via_mail.util.ResponseFormatter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Exportación de listados grandes (LISBOL, LISVEN, LISENC, LISPAG con el
+ * parámetro EXPORTAR)
+ *
+ * Las filas se leen con un Stream del repositorio (fetch size, sin snapshot)
+ * y se escriben una a una en un archivo temporal; cada N filas se vacía el
+ * contexto de persistencia. La memoria usada depende de N y no del tamaño de
+ * la tabla. El archivo se adjunta a la respuesta y JavaMail lo lee por partes
+ * al enviarla.
+ */
+@Service
+public class ListExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ListExportService.class);
+
+    public static final String PARAMETRO_EXPORTAR = "EXPORTAR";
+
+    private static final Set<String> COMANDOS = Set.of("LISBOL", "LISVEN", "LISENC", "LISPAG");
+
+    private final BoletoRepository boletoRepository;
+    private final VentaRepository ventaRepository;
+    private final EncomiendaRepository encomiendaRepository;
+    private final PagoVentaRepository pagoVentaRepository;
+    private final ResponseFormatter formatter;
+    private final EntityManager entityManager;
+    private final MetricsService metricsService;
+
+    @Value("${command.exportar.directorio:data/exportes}")
+    private String directorio;
+
+    // Filas entre cada vaciado del contexto de persistencia
+    @Value("${command.exportar.lote:500}")
+    private int tamanoLote;
+
+    // Tiempo que se conservan los archivos generados (deben alcanzar a enviarse)
+    @Value("${command.exportar.retencion-ms:3600000}")
+    private long retencionMs;
+
+    private Path carpeta;
+
+    public ListExportService(BoletoRepository boletoRepository, VentaRepository ventaRepository,
+            EncomiendaRepository encomiendaRepository, PagoVentaRepository pagoVentaRepository,
+            ResponseFormatter formatter, EntityManager entityManager, MetricsService metricsService) {
+        this.boletoRepository = boletoRepository;
+        this.ventaRepository = ventaRepository;
+        this.encomiendaRepository = encomiendaRepository;
+        this.pagoVentaRepository = pagoVentaRepository;
+        this.formatter = formatter;
+        this.entityManager = entityManager;
+        this.metricsService = metricsService;
+    }
+
+    @PostConstruct
+    public void inicializar() throws IOException {
+        carpeta = Paths.get(directorio);
+        Files.createDirectories(carpeta);
+    }
+
+    /**
+     * Resultado de una exportación: archivo generado y filas escritas
+     */
+    public record Exportacion(Path archivo, long filas) {
+    }
+
+    /**
+     * Indica si el comando admite exportación
+     */
+    public boolean admite(String comando) {
+        return COMANDOS.contains(comando);
+    }
+
+    /**
+     * Quita el parámetro EXPORTAR de la solicitud; retorna true si estaba
+     */
+    public boolean extraerParametro(CommandRequest request) {
+        List<String> restantes = new ArrayList<>();
+        for (String parametro : request.getParametros()) {
+            if (!PARAMETRO_EXPORTAR.equalsIgnoreCase(parametro.trim())) {
+                restantes.add(parametro);
+            }
+        }
+        if (restantes.size() == request.getParametros().size()) {
+            return false;
+        }
+        request.setParametros(restantes);
+        return true;
+    }
+
+    /**
+     * Exporta los boletos, todos o los de un viaje (viajeId null = todos)
+     */
+    @Transactional(readOnly = true)
+    public Exportacion exportarBoletos(Long viajeId) {
+        try (Stream<Boleto> boletos = viajeId == null ? boletoRepository.streamTodos()
+                : boletoRepository.streamByViajeId(viajeId)) {
+            return escribir("boletos", "Boleto", boletos, formatter::formatBoleto);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Exportacion exportarVentas() {
+        try (Stream<Venta> ventas = ventaRepository.streamTodos()) {
+            return escribir("ventas", "Venta", ventas, formatter::formatVenta);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Exportacion exportarEncomiendas() {
+        try (Stream<Encomienda> encomiendas = encomiendaRepository.streamTodos()) {
+            return escribir("encomiendas", "Encomienda", encomiendas, formatter::formatEncomienda);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Exportacion exportarPagos() {
+        try (Stream<PagoVenta> pagos = pagoVentaRepository.streamTodos()) {
+            return escribir("pagos", "Pago", pagos, formatter::formatPago);
+        }
+    }
+
+    private <T> Exportacion escribir(String nombre, String etiqueta, Stream<T> filas, Function<T, String> formato) {
+        long inicio = System.nanoTime();
+        Path archivo = null;
+        try {
+            archivo = Files.createTempFile(carpeta, nombre + "-", ".txt");
+            long total;
+            try (Writer writer = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+                total = formatter.escribirLista(vaciandoCada(filas.iterator()), etiqueta, formato, writer);
+            }
+
+            metricsService.incrementar("exportar." + nombre);
+            metricsService.incrementar("exportar.filas", total);
+            metricsService.registrarTiempo("exportar.duracion", inicio);
+            log.info("Exportación de {}: {} fila(s) en {}", nombre, total, archivo.getFileName());
+            return new Exportacion(archivo, total);
+
+        } catch (IOException e) {
+            eliminar(archivo);
+            throw new CommandException("No se pudo generar la exportación: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            eliminar(archivo);
+            throw e;
+        }
+    }
+
+    /**
+     * Recorre las filas vaciando el contexto de persistencia cada tamanoLote;
+     * las filas anteriores ya fueron escritas y quedan para el GC. No hay
+     * cambios pendientes que perder: la exportación solo lee y no se admite
+     * dentro de un LOTE.
+     */
+    private <T> Iterator<T> vaciandoCada(Iterator<T> filas) {
+        int lote = Math.max(1, tamanoLote);
+        return new Iterator<>() {
+            private long leidas;
+
+            @Override
+            public boolean hasNext() {
+                return filas.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (leidas > 0 && leidas % lote == 0) {
+                    entityManager.clear();
+                }
+                leidas++;
+                return filas.next();
+            }
+        };
+    }
+
+    /**
+     * Elimina los archivos exportados que superaron el tiempo de retención
+     */
+    @Scheduled(fixedDelayString = "${command.exportar.limpieza-ms:600000}")
+    public void limpiar() {
+        if (carpeta == null) {
+            return;
+        }
+        long limite = System.currentTimeMillis() - retencionMs;
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(carpeta, "*.txt")) {
+            for (Path archivo : archivos) {
+                if (Files.getLastModifiedTime(archivo).toMillis() < limite) {
+                    eliminar(archivo);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Error al limpiar exportaciones: {}", e.getMessage());
+        }
+    }
+
+    private void eliminar(Path archivo) {
+        if (archivo == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.debug("No se pudo eliminar {}: {}", archivo, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Spool local de correos entrantes (solo se agrega al final)
+ *
+ * El scheduler copia cada correo (RFC822 completo) a un segmento mapeado en
+ * memoria, sincroniza a disco en lotes y recién entonces lo elimina del
+ * servidor, sin esperar a que se ejecuten los comandos. Un hilo lector
+ * recorre el spool y reparte los correos entre los hilos de procesamiento,
+ * particionados por remitente para conservar el orden de cada uno.
+ *
+ * Formato de cada registro: [largo int][crc32 int][bytes]. Un largo -1 indica
+ * que el resto está en el siguiente segmento. El archivo spool.cursor guarda
+ * la posición del primer registro aún no procesado.
+ */
+@Component
+public class MailSpool {
+
+    private static final Logger log = LoggerFactory.getLogger(MailSpool.class);
+
+    private static final int CABECERA = 8;
+    private static final int MARCA_SIGUIENTE_SEGMENTO = -1;
+
+    private final MessageProcessingService messageProcessingService;
+    private final EmailService emailService;
+    private final MetricsService metricsService;
+    private final Session session = Session.getInstance(new Properties());
+
+    @Value("${mail.spool.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${mail.spool.directorio:data/spool}")
+    private String directorio;
+
+    @Value("${mail.spool.tamano-segmento:67108864}")
+    private int tamanoSegmento;
+
+    @Value("${mail.spool.fsync-cada:32}")
+    private int fsyncCada;
+
+    @Value("${mail.spool.trabajadores:4}")
+    private int trabajadores;
+
+    private Path carpeta;
+
+    // Escritura (scheduler)
+    private MappedByteBuffer escritura;
+    private int segmentoEscritura;
+    private int sinSincronizar;
+    private volatile long finEscrito;
+
+    // Lectura (hilo lector)
+    private MappedByteBuffer lectura;
+    private int segmentoLectura;
+    private int offsetLectura;
+    private volatile long posicionLectura;
+
+    // Confirmación
+    private MappedByteBuffer cursor;
+    private long confirmado;
+    private final ConcurrentSkipListSet<Long> enCurso = new ConcurrentSkipListSet<>();
+    // Registrar en curso + avanzar la lectura es atómico respecto de confirmar()
+    private final Object confirmacion = new Object();
+
+    private final Object aviso = new Object();
+    private PartitionedExecutor porRemitente;
+    private Semaphore permisos;
+    private Thread lector;
+    private volatile boolean activo;
+
+    public MailSpool(MessageProcessingService messageProcessingService, EmailService emailService,
+            MetricsService metricsService) {
+        this.messageProcessingService = messageProcessingService;
+        this.emailService = emailService;
+        this.metricsService = metricsService;
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        if (!habilitado) {
+            return;
+        }
+
+        carpeta = Paths.get(directorio);
+        Files.createDirectories(carpeta);
+        cursor = mapear(carpeta.resolve("spool.cursor"), 8);
+        segmentoLectura = cursor.getInt(0);
+        offsetLectura = cursor.getInt(4);
+        recuperarEscritura();
+        recuperarLectura();
+
+        posicionLectura = clave(segmentoLectura, offsetLectura);
+        confirmado = posicionLectura;
+
+        // Con los permisos nunca hay más de "trabajadores" registros repartidos:
+        // ninguna partición se llena y el lector no bloquea al entregar
+        permisos = new Semaphore(Math.max(1, trabajadores));
+        porRemitente = new PartitionedExecutor("spool", trabajadores, Math.max(1, trabajadores), metricsService);
+        metricsService.registrarIndicador("spool.en_curso", enCurso::size);
+        activo = true;
+        lector = Thread.ofPlatform().daemon().name("spool-lector").start(this::leer);
+
+        log.info("Spool local habilitado en {} - segmento {}, lectura en {}:{}", carpeta.toAbsolutePath(),
+                segmentoEscritura, segmentoLectura, offsetLectura);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Copia el correo completo al spool. Cada fsyncCada mensajes se sincroniza
+     * a disco; antes de eliminar del servidor hay que llamar a sincronizar().
+     */
+    public synchronized void agregar(Message mensaje) throws IOException, MessagingException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        mensaje.writeTo(salida);
+        byte[] datos = salida.toByteArray();
+
+        int necesario = CABECERA + datos.length;
+        if (necesario + 4 > tamanoSegmento) {
+            throw new IOException("Correo de " + datos.length + " bytes excede el tamaño de segmento del spool");
+        }
+        // Se reservan 4 bytes para la marca de cambio de segmento
+        if (escritura.remaining() < necesario + 4) {
+            rotar();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+
+        int posicion = escritura.position();
+        escritura.put(posicion + CABECERA, datos);
+        escritura.putInt(posicion + 4, (int) crc.getValue());
+        // El largo se escribe al final: un registro a medio escribir se lee como fin
+        escritura.putInt(posicion, datos.length);
+        escritura.position(posicion + necesario);
+
+        finEscrito = clave(segmentoEscritura, escritura.position());
+        metricsService.incrementar("spool.agregados");
+
+        if (++sinSincronizar >= Math.max(1, fsyncCada)) {
+            sincronizar();
+        }
+        synchronized (aviso) {
+            aviso.notifyAll();
+        }
+    }
+
+    /**
+     * Fuerza a disco lo escrito desde la última sincronización
+     */
+    public synchronized void sincronizar() throws IOException {
+        if (sinSincronizar == 0) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            escritura.force();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        metricsService.registrarTiempo("spool.fsync", inicio);
+        sinSincronizar = 0;
+    }
+
+    private void rotar() throws IOException {
+        escritura.putInt(escritura.position(), MARCA_SIGUIENTE_SEGMENTO);
+        escritura.force();
+        sinSincronizar = 0;
+
+        segmentoEscritura++;
+        escritura = mapear(segmento(segmentoEscritura), tamanoSegmento);
+        finEscrito = clave(segmentoEscritura, 0);
+        metricsService.incrementar("spool.segmentos");
+    }
+
+    /**
+     * Hilo lector: toma registros en orden y los entrega a la partición de
+     * su remitente
+     */
+    private void leer() {
+        while (activo) {
+            try {
+                Registro registro = siguiente();
+                if (registro == null) {
+                    synchronized (aviso) {
+                        aviso.wait(1000);
+                    }
+                    continue;
+                }
+
+                permisos.acquire();
+                synchronized (confirmacion) {
+                    enCurso.add(registro.clave());
+                    posicionLectura = registro.siguiente();
+                }
+                despachar(registro);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error al leer el spool: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private Registro siguiente() throws IOException {
+        while (clave(segmentoLectura, offsetLectura) < finEscrito) {
+            int largo = lectura.getInt(offsetLectura);
+            if (largo == MARCA_SIGUIENTE_SEGMENTO) {
+                segmentoLectura++;
+                offsetLectura = 0;
+                lectura = mapear(segmento(segmentoLectura), tamanoSegmento);
+                continue;
+            }
+
+            long clave = clave(segmentoLectura, offsetLectura);
+            byte[] datos = new byte[largo];
+            lectura.get(offsetLectura + CABECERA, datos);
+            int crcGuardado = lectura.getInt(offsetLectura + 4);
+            offsetLectura += CABECERA + largo;
+
+            CRC32 crc = new CRC32();
+            crc.update(datos);
+            if ((int) crc.getValue() != crcGuardado) {
+                log.error("Registro corrupto en spool ({}:{}) - se omite", segmentoLectura,
+                        offsetLectura - CABECERA - largo);
+                metricsService.incrementar("spool.corruptos");
+                continue;
+            }
+            return new Registro(clave, clave(segmentoLectura, offsetLectura), datos);
+        }
+        return null;
+    }
+
+    private void despachar(Registro registro) throws InterruptedException {
+        MimeMessage mensaje;
+        try {
+            mensaje = new MimeMessage(session, new ByteArrayInputStream(registro.datos()));
+        } catch (MessagingException e) {
+            log.error("Correo inválido en spool: {}", e.getMessage());
+            terminar(registro);
+            return;
+        }
+        porRemitente.ejecutar(emailService.obtenerEmailRemitente(mensaje), () -> procesar(registro, mensaje));
+    }
+
+    private void procesar(Registro registro, MimeMessage mensaje) {
+        try {
+            messageProcessingService.procesar(mensaje);
+            metricsService.incrementar("spool.procesados");
+        } finally {
+            terminar(registro);
+        }
+    }
+
+    private void terminar(Registro registro) {
+        enCurso.remove(registro.clave());
+        permisos.release();
+        confirmar();
+    }
+
+    /**
+     * Avanza el cursor hasta el primer registro aún en curso y borra los
+     * segmentos ya consumidos. El cursor no se fuerza a disco en cada avance:
+     * tras un corte de energía se reprocesan los últimos (ver idempotencia).
+     */
+    private void confirmar() {
+        synchronized (confirmacion) {
+            long leido = posicionLectura;
+            Long primero = enCurso.ceiling(Long.MIN_VALUE);
+            long hasta = primero == null ? leido : Math.min(primero, leido);
+            if (hasta > confirmado) {
+                avanzarCursor(hasta);
+            }
+        }
+    }
+
+    private void avanzarCursor(long hasta) {
+        int segmentoAnterior = (int) (confirmado >>> 32);
+        confirmado = hasta;
+        int segmentoConfirmado = (int) (hasta >>> 32);
+        cursor.putInt(0, segmentoConfirmado);
+        cursor.putInt(4, (int) hasta);
+
+        for (int i = segmentoAnterior; i < segmentoConfirmado; i++) {
+            try {
+                Files.deleteIfExists(segmento(i));
+            } catch (IOException e) {
+                log.warn("No se pudo borrar segmento de spool {}: {}", i, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ubica el final del último segmento recorriendo sus registros válidos
+     */
+    private void recuperarEscritura() throws IOException {
+        segmentoEscritura = Math.max(segmentoLectura, ultimoSegmento());
+        escritura = mapear(segmento(segmentoEscritura), tamanoSegmento);
+
+        int offset = 0;
+        while (offset + CABECERA <= escritura.capacity()) {
+            int largo = escritura.getInt(offset);
+            if (largo == MARCA_SIGUIENTE_SEGMENTO) {
+                segmentoEscritura++;
+                escritura = mapear(segmento(segmentoEscritura), tamanoSegmento);
+                offset = 0;
+                continue;
+            }
+            if (largo <= 0 || offset + CABECERA + largo > escritura.capacity()
+                    || !crcValido(escritura, offset, largo)) {
+                break;
+            }
+            offset += CABECERA + largo;
+        }
+
+        escritura.position(offset);
+        finEscrito = clave(segmentoEscritura, offset);
+    }
+
+    private void recuperarLectura() throws IOException {
+        if (!Files.exists(segmento(segmentoLectura))) {
+            segmentoLectura = segmentoEscritura;
+            offsetLectura = 0;
+        }
+        // Mapeo propio del lector: comparte las páginas del archivo con el escritor
+        lectura = mapear(segmento(segmentoLectura), tamanoSegmento);
+    }
+
+    private boolean crcValido(MappedByteBuffer buffer, int offset, int largo) {
+        byte[] datos = new byte[largo];
+        buffer.get(offset + CABECERA, datos);
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        return (int) crc.getValue() == buffer.getInt(offset + 4);
+    }
+
+    private int ultimoSegmento() throws IOException {
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            return archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith("spool-") && n.endsWith(".seg"))
+                    .mapToInt(n -> Integer.parseInt(n.substring(6, n.length() - 4)))
+                    .max()
+                    .orElse(0);
+        }
+    }
+
+    private Path segmento(int numero) {
+        return carpeta.resolve(String.format("spool-%08d.seg", numero));
+    }
+
+    private MappedByteBuffer mapear(Path archivo, int tamano) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long largo = Math.max(canal.size(), tamano);
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, largo);
+        }
+    }
+
+    /**
+     * Posición ordenable: segmento en los 32 bits altos, offset en los bajos
+     */
+    private static long clave(int segmento, int offset) {
+        return ((long) segmento << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (!activo) {
+            return;
+        }
+        activo = false;
+        synchronized (aviso) {
+            aviso.notifyAll();
+        }
+        try {
+            lector.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        porRemitente.detener();
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            log.error("No se pudo sincronizar el spool al detener: {}", e.getMessage());
+        }
+        cursor.force();
+        log.info("Spool detenido - {} registro(s) en curso al cerrar", enCurso.size());
+    }
+
+    private record Registro(long clave, long siguiente, byte[] datos) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.List;
+
+import jakarta.mail.Message;
+
+/**
+ * Acceso a la bandeja de entrada de comandos
+ * Implementaciones: POP3 (polling) e IMAP (IDLE + flags SEEN)
+ */
+public interface MailboxReader {
+
+    /**
+     * Retorna los mensajes pendientes de procesar
+     * La bandeja queda abierta hasta cerrarConexion()
+     */
+    List<Message> leerCorreosNoLeidos();
+
+    /**
+     * Marca un mensaje como procesado para que no se vuelva a leer
+     */
+    void marcarComoLeido(Message message);
+
+    /**
+     * Confirma en el servidor los mensajes marcados y libera la bandeja
+     */
+    void cerrarConexion();
+}
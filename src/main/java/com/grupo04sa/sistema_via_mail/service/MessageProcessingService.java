@@ -0,0 +1,174 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
+import com.grupo04sa.sistema_via_mail.dto.CommandResponse;
+import com.grupo04sa.sistema_via_mail.model.Usuario;
+
+import jakarta.mail.Message;
+
+/**
+ * Procesamiento de un correo: parseo del comando, ejecución y respuesta
+ * Compartido por el scheduler (bandeja POP3/IMAP), el receptor SMTP y las
+ * etapas de CommandPipeline
+ */
+@Service
+public class MessageProcessingService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageProcessingService.class);
+
+    private final EmailService emailService;
+    private final CommandParserService parserService;
+    private final CommandExecutorService executorService;
+    private final ReplyOutboxService replyOutboxService;
+    private final IdempotencyService idempotencyService;
+    private final ReplyCoalescer replyCoalescer;
+
+    public MessageProcessingService(EmailService emailService, CommandParserService parserService,
+            CommandExecutorService executorService, ReplyOutboxService replyOutboxService,
+            IdempotencyService idempotencyService, ReplyCoalescer replyCoalescer) {
+        this.emailService = emailService;
+        this.parserService = parserService;
+        this.executorService = executorService;
+        this.replyOutboxService = replyOutboxService;
+        this.idempotencyService = idempotencyService;
+        this.replyCoalescer = replyCoalescer;
+    }
+
+    /**
+     * Procesa un correo individual. Nunca lanza excepción: los errores se
+     * responden al remitente y se registran en el log.
+     */
+    public void procesar(Message mensaje) {
+        long inicio = System.currentTimeMillis();
+        String emailRemitente = null;
+        String comando = null;
+
+        try {
+            // Extraer email del remitente
+            emailRemitente = emailService.obtenerEmailRemitente(mensaje);
+            log.info("Procesando correo de: {}", emailRemitente);
+
+            // Parsear comando del asunto
+            CommandRequest request = parserService.parsear(mensaje, emailRemitente);
+            comando = request.getComando();
+
+            log.info("Comando: {} con {} parámetro(s)", comando, request.getParametros().size());
+
+            // Ejecutar comando
+            CommandResponse response = ejecutar(emailService.obtenerMessageId(mensaje), request, null);
+
+            // Enviar respuesta
+            responder(emailRemitente, response);
+
+            // Calcular tiempo de ejecución
+            int tiempoEjecucion = (int) (System.currentTimeMillis() - inicio);
+
+            log.info("Correo procesado exitosamente en {}ms", tiempoEjecucion);
+
+        } catch (Exception e) {
+            responderError(emailRemitente, comando, e);
+        }
+    }
+
+    /**
+     * Ejecuta el comando una sola vez por correo (Message-ID + remitente).
+     * Con outbox, la respuesta queda registrada en la misma transacción.
+     *
+     * @param usuario Usuario ya autorizado (null = validar permisos aquí)
+     */
+    public CommandResponse ejecutar(String messageId, CommandRequest request, Usuario usuario) {
+        if (replyOutboxService.isHabilitado()) {
+            // Comando y respuesta se confirman en la misma transacción
+            return replyOutboxService.ejecutarYRegistrar(request.getEmailRemitente(),
+                    () -> ejecutarUnaVez(messageId, request, usuario),
+                    this::asuntoRespuesta);
+        }
+        return ejecutarUnaVez(messageId, request, usuario);
+    }
+
+    /**
+     * Envía la respuesta del comando al remitente (con outbox ya quedó
+     * registrada al ejecutar). Las respuestas con adjunto se envían directo.
+     */
+    public void responder(String emailRemitente, CommandResponse response) {
+        if (response.getAdjunto() != null) {
+            responderConAdjunto(emailRemitente, response);
+            return;
+        }
+        if (replyOutboxService.isHabilitado()) {
+            log.info("Respuesta registrada en outbox para: {} - Estado: {}", emailRemitente, response.getEstado());
+            return;
+        }
+
+        // Intentar enviar respuesta (opcional - puede fallar sin afectar el
+        // procesamiento)
+        try {
+            if (replyCoalescer.isHabilitado()) {
+                replyCoalescer.agregar(emailRemitente, asuntoRespuesta(response), response.formatear());
+                return;
+            }
+            emailService.enviarCorreo(emailRemitente, asuntoRespuesta(response), response.formatear());
+            log.info("Respuesta enviada a: {} - Estado: {}", emailRemitente, response.getEstado());
+        } catch (Exception emailEx) {
+            log.warn("No se pudo enviar email de respuesta a {} (comando ejecutado correctamente): {}",
+                    emailRemitente, emailEx.getMessage());
+        }
+    }
+
+    private void responderConAdjunto(String emailRemitente, CommandResponse response) {
+        try {
+            emailService.enviarCorreo(emailRemitente, asuntoRespuesta(response), response.formatear(),
+                    response.getAdjunto());
+            log.info("Respuesta con adjunto enviada a: {} - {}", emailRemitente, response.getAdjunto().getFileName());
+        } catch (Exception emailEx) {
+            log.warn("No se pudo enviar email con adjunto a {}: {}", emailRemitente, emailEx.getMessage());
+        }
+    }
+
+    /**
+     * Registra el error y envía la respuesta de error al remitente (si se conoce)
+     *
+     * Sigue el mismo camino que las respuestas exitosas: con outbox habilitado
+     * se registra en el outbox y no pasa por el agrupador, así el remitente
+     * recibe las respuestas del ciclo por un solo canal y en orden.
+     */
+    public void responderError(String emailRemitente, String comando, Exception e) {
+        log.error("Error al procesar correo de {}: {}", emailRemitente, e.getMessage(), e);
+
+        // Intentar enviar respuesta de error (opcional)
+        String asuntoError = "RE: ERROR - " + (comando != null ? comando : "COMANDO_INVALIDO");
+        String cuerpoError = "ERROR AL PROCESAR COMANDO\n\n" +
+                "Error: " + e.getMessage() + "\n\n" +
+                "Por favor verifica el formato del comando y vuelve a intentar.";
+
+        if (emailRemitente != null) {
+            try {
+                if (replyOutboxService.isHabilitado()) {
+                    replyOutboxService.registrar(emailRemitente, asuntoError, cuerpoError);
+                    log.info("Respuesta de error registrada en outbox para: {}", emailRemitente);
+                    return;
+                }
+                if (replyCoalescer.isHabilitado()) {
+                    replyCoalescer.agregar(emailRemitente, asuntoError, cuerpoError);
+                    return;
+                }
+                emailService.enviarCorreo(emailRemitente, asuntoError, cuerpoError);
+            } catch (Exception emailEx) {
+                log.warn("No se pudo enviar email de error a {}: {}", emailRemitente, emailEx.getMessage());
+            }
+        }
+    }
+
+    private CommandResponse ejecutarUnaVez(String messageId, CommandRequest request, Usuario usuario) {
+        return idempotencyService.ejecutarUnaVez(messageId, request,
+                () -> executorService.ejecutar(request, usuario));
+    }
+
+    private String asuntoRespuesta(CommandResponse response) {
+        return "RE: " + response.getComando() + " - " + response.getEstado();
+    }
+}
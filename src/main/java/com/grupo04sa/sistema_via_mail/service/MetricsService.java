@@ -0,0 +1,96 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Registro en memoria de métricas operativas (latencias y contadores)
+ * Se consulta vía GET /metricas
+ */
+@Service
+public class MetricsService {
+
+    private final Map<String, Latencia> latencias = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> contadores = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<?>> indicadores = new ConcurrentHashMap<>();
+
+    /**
+     * Registra el tiempo transcurrido desde inicioNanos (System.nanoTime())
+     */
+    public void registrarTiempo(String nombre, long inicioNanos) {
+        registrarDuracion(nombre, System.nanoTime() - inicioNanos);
+    }
+
+    /**
+     * Registra una duración en nanosegundos
+     */
+    public void registrarDuracion(String nombre, long nanos) {
+        latencias.computeIfAbsent(nombre, k -> new Latencia()).registrar(nanos);
+    }
+
+    /**
+     * Incrementa un contador en 1
+     */
+    public void incrementar(String nombre) {
+        incrementar(nombre, 1);
+    }
+
+    /**
+     * Incrementa un contador en la cantidad indicada
+     */
+    public void incrementar(String nombre, long cantidad) {
+        contadores.computeIfAbsent(nombre, k -> new LongAdder()).add(cantidad);
+    }
+
+    /**
+     * Registra un indicador cuyo valor actual se lee al consultar las métricas
+     * (por ejemplo, el tamaño de una cola)
+     */
+    public void registrarIndicador(String nombre, Supplier<?> valor) {
+        indicadores.put(nombre, valor);
+    }
+
+    /**
+     * Retorna una foto de todas las métricas, ordenadas por nombre
+     */
+    public Map<String, Object> obtenerResumen() {
+        Map<String, Object> resumen = new TreeMap<>();
+        contadores.forEach((nombre, contador) -> resumen.put(nombre, contador.sum()));
+        latencias.forEach((nombre, latencia) -> resumen.put(nombre, latencia.resumen()));
+        indicadores.forEach((nombre, valor) -> resumen.put(nombre, valor.get()));
+        return resumen;
+    }
+
+    /**
+     * Acumulador de latencias: cantidad, promedio, máximo y último valor
+     */
+    private static class Latencia {
+        private final LongAdder cuenta = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maximoNanos = new AtomicLong();
+        private final AtomicLong ultimoNanos = new AtomicLong();
+
+        void registrar(long nanos) {
+            cuenta.increment();
+            totalNanos.add(nanos);
+            maximoNanos.accumulateAndGet(nanos, Math::max);
+            ultimoNanos.set(nanos);
+        }
+
+        Map<String, Object> resumen() {
+            long n = cuenta.sum();
+            Map<String, Object> datos = new TreeMap<>();
+            datos.put("cuenta", n);
+            datos.put("promedio_ms", n == 0 ? 0.0 : totalNanos.sum() / (double) n / 1_000_000.0);
+            datos.put("maximo_ms", maximoNanos.get() / 1_000_000.0);
+            datos.put("ultimo_ms", ultimoNanos.get() / 1_000_000.0);
+            return datos;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+/**
+ * Evento publicado cuando el servidor notifica la llegada de correos nuevos
+ * (IMAP IDLE); dispara un ciclo de procesamiento sin esperar al polling
+ */
+public class NuevosCorreosEvent {
+
+    private final int cantidad;
+
+    public NuevosCorreosEvent(int cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+}
@@ -6,9 +6,11 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.grupo04sa.sistema_via_mail.dto.PagoResumen;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.model.PagoVenta;
 import com.grupo04sa.sistema_via_mail.model.Venta;
@@ -116,9 +118,17 @@ public class PagoVentaService {
      * Lista todos los pagos
      */
     @Transactional(readOnly = true)
-    public List<PagoVenta> listarTodos() {
+    public List<PagoResumen> listarTodos() {
         log.debug("Listando todos los pagos");
-        return pagoRepository.findAll();
+        return pagoRepository.findResumenes();
+    }
+
+    /**
+     * Lista pagos con ID mayor al cursor (una página)
+     */
+    @Transactional(readOnly = true)
+    public List<PagoResumen> listarDesde(Long cursor, int limite) {
+        return pagoRepository.findDesde(cursor, PageRequest.of(0, limite));
     }
 
     /**
@@ -131,12 +141,21 @@ public class PagoVentaService {
                 .orElseThrow(() -> new EntityNotFoundException("Pago no encontrado con ID: " + id));
     }
 
+    /**
+     * Obtiene la proyección de un pago (comandos de lectura)
+     */
+    @Transactional(readOnly = true)
+    public PagoResumen obtenerResumen(Long id) {
+        return pagoRepository.findResumenById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Pago no encontrado con ID: " + id));
+    }
+
     /**
      * Lista pagos por venta
      */
     @Transactional(readOnly = true)
-    public List<PagoVenta> listarPorVenta(Long ventaId) {
+    public List<PagoResumen> listarPorVenta(Long ventaId) {
         log.debug("Listando pagos de venta ID: {}", ventaId);
-        return pagoRepository.findByVentaId(ventaId);
+        return pagoRepository.findResumenesByVentaId(ventaId);
     }
 }
@@ -0,0 +1,120 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ejecutor particionado por clave (por ejemplo, el email del remitente)
+ *
+ * Cada partición tiene un único hilo y su propia cola: las tareas con la
+ * misma clave se ejecutan en orden de llegada y las de claves distintas en
+ * paralelo. Reporta por partición las tareas pendientes y el retraso entre
+ * el envío y el inicio de cada tarea.
+ */
+public class PartitionedExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionedExecutor.class);
+
+    private final String nombre;
+    private final Particion[] particiones;
+    private final MetricsService metricsService;
+    private final List<Thread> hilos = new ArrayList<>();
+    private volatile boolean activo = true;
+
+    /**
+     * @param nombre    Prefijo de hilos y métricas
+     * @param cantidad  Número de particiones (hilos)
+     * @param capacidad Tareas en espera por partición; al llenarse ejecutar() bloquea
+     */
+    public PartitionedExecutor(String nombre, int cantidad, int capacidad, MetricsService metricsService) {
+        this.nombre = nombre;
+        this.metricsService = metricsService;
+        this.particiones = new Particion[Math.max(1, cantidad)];
+
+        for (int i = 0; i < particiones.length; i++) {
+            Particion particion = new Particion(i, Math.max(1, capacidad));
+            particiones[i] = particion;
+            metricsService.registrarIndicador(nombre + ".particion." + i + ".pendientes", particion.cola::size);
+            hilos.add(Thread.ofPlatform().daemon().name(nombre + "-" + i).start(particion::trabajar));
+        }
+    }
+
+    /**
+     * Encola la tarea en la partición de la clave
+     */
+    public void ejecutar(String clave, Runnable tarea) throws InterruptedException {
+        particiones[particion(clave)].cola.put(new Tarea(tarea, System.nanoTime()));
+    }
+
+    /**
+     * Partición asignada a la clave (sin distinguir mayúsculas)
+     */
+    public int particion(String clave) {
+        if (clave == null) {
+            return 0;
+        }
+        int hash = clave.toLowerCase(Locale.ROOT).hashCode();
+        // Mezclar bits altos para repartir mejor con pocas particiones
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, particiones.length);
+    }
+
+    public int getCantidad() {
+        return particiones.length;
+    }
+
+    /**
+     * Deja de tomar tareas una vez vaciadas las colas y espera a que los
+     * hilos terminen las pendientes
+     */
+    public void detener() {
+        activo = false;
+        for (Thread hilo : hilos) {
+            try {
+                hilo.join(TimeUnit.SECONDS.toMillis(15));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private record Tarea(Runnable accion, long encolada) {
+    }
+
+    private class Particion {
+        private final int numero;
+        private final BlockingQueue<Tarea> cola;
+
+        private Particion(int numero, int capacidad) {
+            this.numero = numero;
+            this.cola = new LinkedBlockingQueue<>(capacidad);
+        }
+
+        private void trabajar() {
+            String metricaRetraso = nombre + ".particion." + numero + ".retraso";
+            while (activo || !cola.isEmpty()) {
+                try {
+                    Tarea tarea = cola.poll(1, TimeUnit.SECONDS);
+                    if (tarea == null) {
+                        continue;
+                    }
+                    metricsService.registrarTiempo(metricaRetraso, tarea.encolada());
+                    tarea.accion().run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("Error en partición {}-{}: {}", nombre, numero, e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Etapa de un pipeline: N hilos toman elementos de una cola acotada, aplican
+ * el trabajo y los entregan a la etapa siguiente. Si la cola siguiente está
+ * llena la etapa queda bloqueada (backpressure).
+ *
+ * Con una clave (por ejemplo el remitente) la etapa se particiona: cada
+ * hilo tiene su propia cola (PartitionedExecutor) y los elementos de una
+ * misma clave pasan por el mismo hilo, en orden de llegada.
+ *
+ * Métricas por etapa (prefijo pipeline.nombre): procesados, proceso
+ * (tiempo de trabajo), bloqueo (espera para entregar) y cola (profundidad).
+ */
+public class PipelineStage<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineStage.class);
+
+    private final String nombre;
+    private final int capacidad;
+    private final BlockingQueue<T> cola;
+    private final Consumer<T> trabajo;
+    private final Function<T, String> clave;
+    private final MetricsService metricsService;
+    private final List<Thread> hilos = new ArrayList<>();
+
+    private PipelineStage<T> siguiente;
+    private Consumer<T> descarte = elemento -> { };
+    private PartitionedExecutor particiones;
+    private volatile boolean activa;
+
+    public PipelineStage(String nombre, int capacidad, Consumer<T> trabajo, MetricsService metricsService) {
+        this(nombre, capacidad, trabajo, null, metricsService);
+    }
+
+    /**
+     * @param clave Clave de partición de cada elemento (null = cola única)
+     */
+    public PipelineStage(String nombre, int capacidad, Consumer<T> trabajo, Function<T, String> clave,
+            MetricsService metricsService) {
+        this.nombre = nombre;
+        this.capacidad = Math.max(1, capacidad);
+        this.cola = new ArrayBlockingQueue<>(this.capacidad);
+        this.trabajo = trabajo;
+        this.clave = clave;
+        this.metricsService = metricsService;
+        if (clave == null) {
+            metricsService.registrarIndicador("pipeline." + nombre + ".cola", cola::size);
+        }
+    }
+
+    /**
+     * Conecta la etapa siguiente y la retorna (para encadenar)
+     */
+    public PipelineStage<T> conectar(PipelineStage<T> siguiente) {
+        this.siguiente = siguiente;
+        return siguiente;
+    }
+
+    /**
+     * Trabajo para un elemento que no se pudo entregar a la etapa siguiente
+     * (hilo interrumpido); permite cerrarlo en lugar de perderlo en silencio
+     */
+    public PipelineStage<T> descartarCon(Consumer<T> descarte) {
+        this.descarte = descarte;
+        return this;
+    }
+
+    public void iniciar(int cantidadHilos) {
+        activa = true;
+        if (clave != null) {
+            particiones = new PartitionedExecutor("pipeline." + nombre, cantidadHilos, capacidad, metricsService);
+            return;
+        }
+        for (int i = 1; i <= Math.max(1, cantidadHilos); i++) {
+            hilos.add(Thread.ofPlatform().daemon().name("pipeline-" + nombre + "-" + i).start(this::trabajar));
+        }
+    }
+
+    /**
+     * Entrega un elemento a esta etapa; bloquea mientras la cola esté llena
+     */
+    public void enviar(T elemento) throws InterruptedException {
+        if (particiones != null) {
+            particiones.ejecutar(clave.apply(elemento), () -> procesar(elemento));
+            return;
+        }
+        cola.put(elemento);
+    }
+
+    private void trabajar() {
+        while (activa) {
+            try {
+                T elemento = cola.poll(1, TimeUnit.SECONDS);
+                if (elemento != null) {
+                    procesar(elemento);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void procesar(T elemento) {
+        long inicio = System.nanoTime();
+        try {
+            trabajo.accept(elemento);
+        } catch (RuntimeException e) {
+            log.error("Error en etapa {}: {}", nombre, e.getMessage(), e);
+        }
+        metricsService.registrarTiempo("pipeline." + nombre + ".proceso", inicio);
+        metricsService.incrementar("pipeline." + nombre + ".procesados");
+
+        if (siguiente != null) {
+            long inicioEntrega = System.nanoTime();
+            try {
+                siguiente.enviar(elemento);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                metricsService.incrementar("pipeline." + nombre + ".descartados");
+                log.warn("Etapa {} interrumpida antes de entregar un elemento a la siguiente", nombre);
+                descarte.accept(elemento);
+                return;
+            }
+            metricsService.registrarTiempo("pipeline." + nombre + ".bloqueo", inicioEntrega);
+        }
+    }
+
+    /**
+     * Detiene los hilos de la etapa una vez vaciada su cola
+     */
+    public void detener() {
+        if (particiones != null) {
+            particiones.detener();
+            return;
+        }
+        while (!cola.isEmpty()) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        activa = false;
+        for (Thread hilo : hilos) {
+            try {
+                hilo.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.UIDFolder;
+
+import com.sun.mail.pop3.POP3Folder;
+
+/**
+ * Lectura de la bandeja vía POP3 (modo por defecto)
+ * Los mensajes procesados se marcan DELETED y se eliminan al cerrar el INBOX
+ */
+@Component
+@ConditionalOnProperty(name = "mail.ingestion.protocolo", havingValue = "pop3", matchIfMissing = true)
+public class Pop3MailboxReader implements MailboxReader {
+
+    private static final Logger log = LoggerFactory.getLogger(Pop3MailboxReader.class);
+
+    private final Pop3SessionManager pop3SessionManager;
+    private final Pop3UidStore uidStore;
+
+    @Value("${mail.filter.start-date:2025-12-15}")
+    private String filterStartDate;
+
+    @Value("${mail.fetch.solo-cabeceras:false}")
+    private boolean soloCabeceras;
+
+    public Pop3MailboxReader(Pop3SessionManager pop3SessionManager, Pop3UidStore uidStore) {
+        this.pop3SessionManager = pop3SessionManager;
+        this.uidStore = uidStore;
+    }
+
+
+    /**
+     * Lee correos no leídos desde el servidor POP3
+     * 
+     * @return Lista de mensajes no leídos
+     */
+    @Override
+    public List<Message> leerCorreosNoLeidos() {
+        List<Message> mensajesNoLeidos = new ArrayList<>();
+
+        try {
+            // Cerrar ciclo anterior si quedó abierto y abrir INBOX (nueva conexión POP3)
+            cerrarConexion();
+            Folder folder = pop3SessionManager.abrirInbox();
+
+            // Obtener todos los mensajes
+            long inicioListado = System.nanoTime();
+            Message[] messages = folder.getMessages();
+            pop3SessionManager.registrarComando("listado", inicioListado);
+            log.debug("Total de mensajes en bandeja: {}", messages.length);
+
+            // Descartar los ya procesados según su UIDL (un solo comando al servidor)
+            if (uidStore.isHabilitado()) {
+                messages = filtrarNoVistos(folder, messages);
+            }
+
+            // Precargar solo cabeceras (sobre) en bloque; el cuerpo se descarga
+            // recién cuando un comando lo necesita
+            if (soloCabeceras) {
+                long inicioPrecarga = System.nanoTime();
+                folder.fetch(messages, crearPerfilCabeceras());
+                pop3SessionManager.registrarComando("precarga_cabeceras", inicioPrecarga);
+            }
+
+            // Parsear fecha de inicio del filtro
+            LocalDate startDate = LocalDate.parse(filterStartDate);
+            log.info("Filtrando correos desde: {}", startDate);
+
+            // Filtrar mensajes por fecha (POP3 no maneja flags SEEN de forma confiable)
+            // Solo procesamos mensajes que NO estén marcados para eliminación
+            int filtradosPorFecha = 0;
+            for (Message message : messages) {
+                // Verificar que no esté marcado para eliminar
+                if (!message.isSet(Flags.Flag.DELETED)) {
+                    // Verificar fecha del mensaje
+                    long inicioCabecera = System.nanoTime();
+                    Date receivedDate = obtenerFecha(message);
+                    pop3SessionManager.registrarComando("cabecera", inicioCabecera);
+                    if (receivedDate != null) {
+                        LocalDate messageDate = receivedDate.toInstant()
+                                .atZone(ZoneId.systemDefault())
+                                .toLocalDate();
+
+                        if (!messageDate.isBefore(startDate)) {
+                            mensajesNoLeidos.add(message);
+                        } else {
+                            filtradosPorFecha++;
+                            log.debug("Correo descartado por fecha: {} (anterior a {})",
+                                    messageDate, startDate);
+                            // No volver a revisarlo en ciclos siguientes
+                            registrarUid(message);
+                        }
+                    } else {
+                        // Si no tiene fecha, lo incluimos por seguridad
+                        mensajesNoLeidos.add(message);
+                    }
+                }
+            }
+
+            if (filtradosPorFecha > 0) {
+                log.info("Correos filtrados por fecha (anteriores a {}): {}",
+                        startDate, filtradosPorFecha);
+            }
+
+            log.info("Correos no leídos encontrados: {}", mensajesNoLeidos.size());
+
+            // Mantener conexión abierta para poder marcar y eliminar mensajes después
+
+        } catch (Exception e) {
+            log.error("Error al leer correos: {}", e.getMessage(), e);
+            cerrarConexion(); // Cerrar en caso de error
+        }
+
+        return mensajesNoLeidos;
+    }
+
+    /**
+     * Obtiene los UIDL de toda la bandeja y retorna solo los mensajes que no
+     * figuran en el registro persistente. También compacta el registro
+     * quitando los UIDs que ya no están en el servidor.
+     */
+    private Message[] filtrarNoVistos(Folder folder, Message[] messages) throws MessagingException {
+        long inicio = System.nanoTime();
+        FetchProfile perfil = new FetchProfile();
+        perfil.add(UIDFolder.FetchProfileItem.UID);
+        folder.fetch(messages, perfil);
+        pop3SessionManager.registrarComando("uidl", inicio);
+
+        Set<String> uidsEnServidor = new HashSet<>();
+        List<Message> noVistos = new ArrayList<>();
+        for (Message message : messages) {
+            String uid = obtenerUid(message);
+            if (uid == null) {
+                noVistos.add(message);
+                continue;
+            }
+            uidsEnServidor.add(uid);
+            if (!uidStore.fueVisto(uid)) {
+                noVistos.add(message);
+            }
+        }
+
+        uidStore.conservarSolo(uidsEnServidor);
+        log.debug("Correos con UIDL nuevo: {} de {}", noVistos.size(), messages.length);
+        return noVistos.toArray(new Message[0]);
+    }
+
+    /**
+     * UID del mensaje en su carpeta (UIDL en POP3, UID en IMAP)
+     */
+    private String obtenerUid(Message message) throws MessagingException {
+        Folder folder = message.getFolder();
+        if (folder instanceof POP3Folder pop3Folder) {
+            return pop3Folder.getUID(message);
+        }
+        if (folder instanceof UIDFolder uidFolder) {
+            return String.valueOf(uidFolder.getUID(message));
+        }
+        return null;
+    }
+
+    private void registrarUid(Message message) {
+        if (!uidStore.isHabilitado()) {
+            return;
+        }
+        try {
+            uidStore.registrar(obtenerUid(message));
+        } catch (MessagingException e) {
+            log.warn("No se pudo registrar UIDL del mensaje: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Perfil de precarga: sobre (From, Subject, Date...) sin contenido
+     */
+    private FetchProfile crearPerfilCabeceras() {
+        FetchProfile perfil = new FetchProfile();
+        perfil.add(FetchProfile.Item.ENVELOPE);
+        return perfil;
+    }
+
+    /**
+     * Fecha del mensaje para el filtro. POP3 no informa fecha de recepción, así
+     * que en modo solo-cabeceras se usa la cabecera Date ya precargada.
+     */
+    private Date obtenerFecha(Message message) throws MessagingException {
+        Date receivedDate = message.getReceivedDate();
+        if (receivedDate == null && soloCabeceras) {
+            return message.getSentDate();
+        }
+        return receivedDate;
+    }
+
+    /**
+     * Marca un mensaje como leído (POP3 no soporta flags, así que lo eliminamos)
+     * En POP3, la única forma de evitar reprocesar es eliminar el mensaje
+     */
+    @Override
+    public void marcarComoLeido(Message message) {
+        try {
+            // POP3 no soporta flags SEEN de forma confiable
+            // La solución es eliminar el mensaje después de procesarlo
+            message.setFlag(Flags.Flag.DELETED, true);
+            // Si el expunge falla, el UIDL evita reprocesarlo en el siguiente ciclo
+            registrarUid(message);
+            log.info("Mensaje marcado para eliminación (procesado correctamente)");
+        } catch (MessagingException e) {
+            log.error("Error al marcar mensaje para eliminar: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cierra el INBOX actual y aplica expunge (elimina mensajes marcados como
+     * DELETED). Envía QUIT: el siguiente ciclo abre una conexión nueva.
+     */
+    @Override
+    public void cerrarConexion() {
+        pop3SessionManager.cerrarInbox(true);
+        log.debug("INBOX cerrado con expunge - conexión POP3 terminada");
+    }
+}
@@ -0,0 +1,168 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+
+/**
+ * Administra la sesión POP3 entre ciclos del scheduler
+ *
+ * La Session de JavaMail se crea una sola vez. La conexión al servidor no se
+ * conserva entre ciclos: POP3 solo aplica las eliminaciones al cerrar (QUIT)
+ * y no muestra correos nuevos dentro de una sesión ya abierta, así que cada
+ * apertura del INBOX conecta y autentica, y cada cierre envía QUIT. El tiempo
+ * de ese intercambio se mide en pop3.apertura_inbox.
+ */
+@Component
+public class Pop3SessionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(Pop3SessionManager.class);
+
+    private final MetricsService metricsService;
+
+    @Value("${mail.pop3.host}")
+    private String pop3Host;
+
+    @Value("${mail.pop3.port}")
+    private int pop3Port;
+
+    @Value("${mail.pop3.username}")
+    private String pop3Username;
+
+    @Value("${mail.pop3.password}")
+    private String pop3Password;
+
+    @Value("${mail.pop3.ssl.enable}")
+    private boolean pop3SslEnable;
+
+    private Session session;
+    private Store store;
+    private Folder inbox;
+
+    public Pop3SessionManager(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * Abre el INBOX en modo READ_WRITE (nueva conexión POP3 con autenticación)
+     * Si falla se crea un Store nuevo y se reintenta una vez
+     */
+    public synchronized Folder abrirInbox() throws MessagingException {
+        cerrarInbox(false);
+        asegurarConexion();
+
+        try {
+            inbox = abrirFolder();
+        } catch (MessagingException e) {
+            log.warn("No se pudo abrir INBOX con la sesión actual, reconectando: {}", e.getMessage());
+            reconectar();
+            inbox = abrirFolder();
+        }
+
+        return inbox;
+    }
+
+    /**
+     * Cierra el INBOX actual; envía QUIT y termina la conexión POP3
+     *
+     * @param expunge true = eliminar del servidor los mensajes marcados DELETED
+     */
+    public synchronized void cerrarInbox(boolean expunge) {
+        if (inbox == null) {
+            return;
+        }
+
+        try {
+            if (inbox.isOpen()) {
+                long inicio = System.nanoTime();
+                inbox.close(expunge);
+                if (expunge) {
+                    metricsService.registrarTiempo("pop3.expunge", inicio);
+                }
+            }
+        } catch (MessagingException e) {
+            log.error("Error al cerrar INBOX: {}", e.getMessage());
+            metricsService.incrementar("pop3.errores.cierre");
+        } finally {
+            inbox = null;
+        }
+    }
+
+    /**
+     * Registra la latencia de un comando POP3 (STAT, LIST, TOP...)
+     */
+    public void registrarComando(String comando, long inicioNanos) {
+        metricsService.registrarTiempo("pop3.comando." + comando, inicioNanos);
+    }
+
+    /**
+     * Crea el Store si no existe o quedó desconectado
+     */
+    private void asegurarConexion() throws MessagingException {
+        if (store == null || !store.isConnected()) {
+            reconectar();
+        }
+    }
+
+    private void reconectar() throws MessagingException {
+        cerrarStore();
+
+        log.debug("Conectando al servidor POP3: {}:{}", pop3Host, pop3Port);
+        long inicio = System.nanoTime();
+
+        store = obtenerSession().getStore("pop3");
+        store.connect(pop3Host, pop3Username, pop3Password);
+
+        metricsService.registrarTiempo("pop3.conexion", inicio);
+    }
+
+    private Folder abrirFolder() throws MessagingException {
+        long inicio = System.nanoTime();
+        Folder folder = store.getFolder("INBOX");
+        folder.open(Folder.READ_WRITE);
+        metricsService.registrarTiempo("pop3.apertura_inbox", inicio);
+        return folder;
+    }
+
+    private Session obtenerSession() {
+        if (session == null) {
+            Properties properties = new Properties();
+            properties.put("mail.store.protocol", "pop3");
+            properties.put("mail.pop3.host", pop3Host);
+            properties.put("mail.pop3.port", pop3Port);
+            properties.put("mail.pop3.ssl.enable", pop3SslEnable);
+            properties.put("mail.pop3.ssl.trust", "*");
+            session = Session.getInstance(properties);
+        }
+        return session;
+    }
+
+    private void cerrarStore() {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.close();
+        } catch (MessagingException e) {
+            log.debug("Error al cerrar Store POP3: {}", e.getMessage());
+        } finally {
+            store = null;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void cerrar() {
+        cerrarInbox(true);
+        cerrarStore();
+        log.debug("Sesión POP3 cerrada");
+    }
+}
@@ -0,0 +1,110 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Registro persistente de UIDLs POP3 ya procesados
+ *
+ * Se guarda en un archivo local (un UID por línea) para no depender del
+ * esquema de la BD, que se valida pero no se modifica (ddl-auto=validate).
+ * Los UIDs POP3 no son ordenables, por eso se guarda el conjunto de vistos
+ * en lugar de un único valor máximo.
+ */
+@Component
+public class Pop3UidStore {
+
+    private static final Logger log = LoggerFactory.getLogger(Pop3UidStore.class);
+
+    private final Set<String> vistos = ConcurrentHashMap.newKeySet();
+
+    @Value("${mail.uidl.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${mail.uidl.archivo:data/pop3-uidl.txt}")
+    private String rutaArchivo;
+
+    private Path archivo;
+
+    @PostConstruct
+    public void cargar() {
+        if (!habilitado) {
+            return;
+        }
+
+        archivo = Paths.get(rutaArchivo);
+        try {
+            if (archivo.getParent() != null) {
+                Files.createDirectories(archivo.getParent());
+            }
+            if (Files.exists(archivo)) {
+                for (String linea : Files.readAllLines(archivo, StandardCharsets.UTF_8)) {
+                    if (!linea.isBlank()) {
+                        vistos.add(linea.trim());
+                    }
+                }
+            }
+            log.info("Registro UIDL cargado desde {} - {} UID(s) ya procesados", archivo, vistos.size());
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo cargar el registro UIDL: " + archivo, e);
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Indica si el UID ya fue procesado en un ciclo anterior
+     */
+    public boolean fueVisto(String uid) {
+        return vistos.contains(uid);
+    }
+
+    /**
+     * Registra un UID como procesado y lo persiste de inmediato (DSYNC)
+     */
+    public synchronized void registrar(String uid) {
+        if (uid == null || !vistos.add(uid)) {
+            return;
+        }
+        try {
+            Files.writeString(archivo, uid + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            log.error("No se pudo persistir UID {}: {}", uid, e.getMessage());
+        }
+    }
+
+    /**
+     * Descarta los UIDs que ya no existen en el servidor para que el registro
+     * no crezca indefinidamente. Reescribe el archivo de forma atómica.
+     */
+    public synchronized void conservarSolo(Set<String> uidsEnServidor) {
+        if (!vistos.retainAll(uidsEnServidor)) {
+            return;
+        }
+        try {
+            Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            Files.write(temporal, vistos, StandardCharsets.UTF_8);
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Registro UIDL compactado - {} UID(s) vigentes", vistos.size());
+        } catch (IOException e) {
+            log.error("No se pudo compactar el registro UIDL: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Agrupa las respuestas de un mismo remitente en un solo correo
+ *
+ * Durante el ciclo las respuestas se acumulan por remitente; al cerrar el
+ * ciclo se envía un resumen por remitente (o la respuesta tal cual si era
+ * una sola). Ninguna respuesta espera más que el retraso máximo, aunque el
+ * ciclo siga en curso.
+ */
+@Service
+public class ReplyCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplyCoalescer.class);
+
+    private final EmailService emailService;
+    private final MetricsService metricsService;
+
+    @Value("${mail.respuestas.agrupar.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${mail.respuestas.agrupar.retraso-maximo-ms:10000}")
+    private long retrasoMaximoMs;
+
+    private final Map<String, Resumen> pendientes = new ConcurrentHashMap<>();
+
+    public ReplyCoalescer(EmailService emailService, MetricsService metricsService) {
+        this.emailService = emailService;
+        this.metricsService = metricsService;
+        metricsService.registrarIndicador("respuestas.agrupar.remitentes", pendientes::size);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Acumula la respuesta para el remitente
+     */
+    public void agregar(String destinatario, String asunto, String cuerpo) {
+        String clave = destinatario.trim().toLowerCase(Locale.ROOT);
+        pendientes.compute(clave, (k, resumen) -> {
+            Resumen actual = resumen != null ? resumen : new Resumen(destinatario, System.nanoTime());
+            actual.respuestas.add(new Respuesta(asunto, cuerpo));
+            return actual;
+        });
+    }
+
+    /**
+     * Envía todos los resúmenes pendientes (fin de ciclo)
+     */
+    public void vaciar() {
+        for (String clave : pendientes.keySet()) {
+            enviar(pendientes.remove(clave));
+        }
+    }
+
+    /**
+     * Envía los resúmenes cuya primera respuesta alcanzó el retraso máximo
+     */
+    @Scheduled(fixedDelayString = "${mail.respuestas.agrupar.revision-ms:1000}")
+    public void vaciarVencidos() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        long limite = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(retrasoMaximoMs);
+        for (Map.Entry<String, Resumen> entrada : pendientes.entrySet()) {
+            if (entrada.getValue().creado - limite <= 0 && pendientes.remove(entrada.getKey(), entrada.getValue())) {
+                metricsService.incrementar("respuestas.agrupar.vencidos");
+                enviar(entrada.getValue());
+            }
+        }
+    }
+
+    private void enviar(Resumen resumen) {
+        if (resumen == null) {
+            return;
+        }
+        List<Respuesta> respuestas = resumen.respuestas;
+        metricsService.registrarTiempo("respuestas.agrupar.retraso", resumen.creado);
+
+        if (respuestas.size() == 1) {
+            emailService.enviarCorreo(resumen.destinatario, respuestas.get(0).asunto(), respuestas.get(0).cuerpo());
+            return;
+        }
+
+        StringBuilder cuerpo = new StringBuilder();
+        cuerpo.append("Se agruparon ").append(respuestas.size()).append(" respuestas en este correo.\n\n");
+        for (int i = 0; i < respuestas.size(); i++) {
+            Respuesta respuesta = respuestas.get(i);
+            cuerpo.append("#").append(i + 1).append(" ").append(respuesta.asunto()).append("\n");
+            cuerpo.append(respuesta.cuerpo()).append("\n");
+        }
+
+        emailService.enviarCorreo(resumen.destinatario, respuestas.size() + " respuestas - Sistema Via Mail",
+                cuerpo.toString());
+        metricsService.incrementar("respuestas.agrupar.resumenes");
+        metricsService.incrementar("respuestas.agrupar.evitadas", respuestas.size() - 1L);
+        log.info("Resumen de {} respuesta(s) enviado a: {}", respuestas.size(), resumen.destinatario);
+    }
+
+    @PreDestroy
+    public void detener() {
+        vaciar();
+    }
+
+    private record Respuesta(String asunto, String cuerpo) {
+    }
+
+    /**
+     * Respuestas acumuladas de un remitente; solo se modifica dentro de
+     * compute() y se envía después de quitarla del mapa
+     */
+    private static class Resumen {
+        private final String destinatario;
+        private final long creado;
+        private final List<Respuesta> respuestas = new ArrayList<>();
+
+        private Resumen(String destinatario, long creado) {
+            this.destinatario = destinatario;
+            this.creado = creado;
+        }
+    }
+}
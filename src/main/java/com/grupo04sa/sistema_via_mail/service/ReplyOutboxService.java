@@ -0,0 +1,94 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.grupo04sa.sistema_via_mail.dto.CommandResponse;
+import com.grupo04sa.sistema_via_mail.repository.MailOutboxRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Outbox transaccional de respuestas
+ *
+ * La respuesta se guarda en mail_outbox en la misma transacción que las
+ * escrituras del comando: si el INSBOL/INSPAG se confirma, su respuesta
+ * también. ReplyOutboxDispatcher la envía después, con reintentos.
+ */
+@Service
+public class ReplyOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplyOutboxService.class);
+
+    private final MailOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsService metricsService;
+
+    @Value("${mail.outbox.habilitado:false}")
+    private boolean habilitado;
+
+    public ReplyOutboxService(MailOutboxRepository outboxRepository,
+            @Qualifier("transaccionComando") TransactionTemplate transactionTemplate, MetricsService metricsService) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.metricsService = metricsService;
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        if (!habilitado) {
+            return;
+        }
+        outboxRepository.crearTablaSiNoExiste();
+        log.info("Outbox de respuestas habilitado (tabla mail_outbox)");
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Registra una respuesta pendiente; si hay una transacción activa se
+     * confirma junto con ella
+     */
+    public void registrar(String destinatario, String asunto, String cuerpo) {
+        outboxRepository.insertar(destinatario, asunto, cuerpo);
+        metricsService.incrementar("outbox.registradas");
+    }
+
+    /**
+     * Ejecuta el comando y registra su respuesta en una sola transacción.
+     *
+     * Si algún servicio marcó la transacción para rollback (el comando falló y
+     * la respuesta es de error), se revierte sin excepción y la respuesta se
+     * registra aparte para que no se pierda. Las respuestas con adjunto no se
+     * registran: el outbox guarda solo texto y se envían directo.
+     */
+    public CommandResponse ejecutarYRegistrar(String destinatario, Supplier<CommandResponse> comando,
+            Function<CommandResponse, String> asunto) {
+        CommandResponse[] fueraDeTransaccion = new CommandResponse[1];
+
+        CommandResponse response = transactionTemplate.execute(status -> {
+            CommandResponse resultado = comando.get();
+            if (status.isRollbackOnly()) {
+                status.setRollbackOnly();
+                fueraDeTransaccion[0] = resultado;
+            } else if (resultado.getAdjunto() == null) {
+                registrar(destinatario, asunto.apply(resultado), resultado.formatear());
+            }
+            return resultado;
+        });
+
+        if (fueraDeTransaccion[0] != null && response.getAdjunto() == null) {
+            registrar(destinatario, asunto.apply(response), response.formatear());
+        }
+        return response;
+    }
+}
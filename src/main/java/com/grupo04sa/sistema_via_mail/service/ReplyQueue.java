@@ -0,0 +1,179 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Cola acotada de respuestas salientes
+ *
+ * El procesamiento de comandos solo encola la respuesta; hilos dedicados la
+ * envían en lotes por una misma conexión SMTP. Si SMTP se atrasa la cola se
+ * llena y encolar() bloquea, frenando el procesamiento en lugar de acumular
+ * respuestas en memoria sin límite.
+ */
+@Component
+public class ReplyQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplyQueue.class);
+
+    private final SmtpTransportPool smtpTransportPool;
+    private final MetricsService metricsService;
+
+    @Value("${mail.respuestas.asincronas:false}")
+    private boolean habilitada;
+
+    @Value("${mail.respuestas.cola.capacidad:200}")
+    private int capacidad;
+
+    @Value("${mail.respuestas.trabajadores:2}")
+    private int trabajadores;
+
+    @Value("${mail.respuestas.lote:20}")
+    private int tamanoLote;
+
+    private BlockingQueue<RespuestaPendiente> cola;
+    private final List<Thread> hilos = new ArrayList<>();
+    private volatile boolean activa;
+
+    public ReplyQueue(SmtpTransportPool smtpTransportPool, MetricsService metricsService) {
+        this.smtpTransportPool = smtpTransportPool;
+        this.metricsService = metricsService;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+
+        cola = new ArrayBlockingQueue<>(Math.max(1, capacidad));
+        metricsService.registrarIndicador("respuestas.cola.pendientes", cola::size);
+        activa = true;
+
+        for (int i = 1; i <= Math.max(1, trabajadores); i++) {
+            hilos.add(Thread.ofPlatform().daemon().name("respuestas-" + i).start(this::despachar));
+        }
+        log.info("Respuestas asíncronas habilitadas - cola de {}, {} hilo(s) de envío", capacidad, hilos.size());
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Encola la respuesta; bloquea mientras la cola esté llena. Si la cola ya
+     * no está activa (aplicación deteniéndose) la respuesta se envía en el
+     * momento, ya que ningún hilo la tomaría.
+     */
+    public void encolar(MimeMessage message) throws MessagingException {
+        if (!activa) {
+            enviarDirecto(message);
+            return;
+        }
+
+        RespuestaPendiente pendiente = new RespuestaPendiente(message, System.nanoTime());
+        if (!cola.offer(pendiente)) {
+            metricsService.incrementar("respuestas.cola.llena");
+            long inicio = System.nanoTime();
+            try {
+                cola.put(pendiente);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException("Interrumpido esperando lugar en la cola de respuestas", e);
+            }
+            metricsService.registrarTiempo("respuestas.cola.espera", inicio);
+        }
+
+        // Se detuvo mientras se encolaba: si sigue en la cola, los hilos pueden
+        // haber terminado ya
+        if (!activa && cola.remove(pendiente)) {
+            enviarDirecto(message);
+        }
+    }
+
+    private void enviarDirecto(MimeMessage message) throws MessagingException {
+        metricsService.incrementar("respuestas.envio.directo");
+        smtpTransportPool.enviar(message);
+    }
+
+    /**
+     * Toma hasta tamanoLote respuestas y las envía por una sola conexión
+     */
+    private void despachar() {
+        List<RespuestaPendiente> lote = new ArrayList<>();
+
+        while (activa || !cola.isEmpty()) {
+            try {
+                RespuestaPendiente primera = cola.poll(1, TimeUnit.SECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                cola.drainTo(lote, Math.max(1, tamanoLote) - 1);
+
+                enviar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error en el envío de respuestas: {}", e.getMessage(), e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void enviar(List<RespuestaPendiente> lote) {
+        List<MimeMessage> mensajes = new ArrayList<>(lote.size());
+        for (RespuestaPendiente pendiente : lote) {
+            mensajes.add(pendiente.mensaje());
+        }
+
+        smtpTransportPool.enviarLote(mensajes, (mensaje, e) -> {
+            metricsService.incrementar("respuestas.errores");
+            log.error("Error al enviar respuesta: {}", e.getMessage());
+        });
+
+        long ahora = System.nanoTime();
+        for (RespuestaPendiente pendiente : lote) {
+            metricsService.registrarDuracion("respuestas.retraso", ahora - pendiente.encolada());
+        }
+        metricsService.incrementar("respuestas.lotes");
+        metricsService.incrementar("respuestas.despachadas", lote.size());
+    }
+
+    /**
+     * Deja de aceptar respuestas y espera a que se envíen las pendientes
+     */
+    @PreDestroy
+    public void detener() {
+        activa = false;
+        for (Thread hilo : hilos) {
+            try {
+                hilo.join(TimeUnit.SECONDS.toMillis(15));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (cola != null && !cola.isEmpty()) {
+            log.warn("{} respuesta(s) sin enviar al detener la aplicación", cola.size());
+        }
+    }
+
+    private record RespuestaPendiente(MimeMessage mensaje, long encolada) {
+    }
+}
@@ -4,9 +4,11 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.grupo04sa.sistema_via_mail.dto.RutaResumen;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.model.Ruta;
 import com.grupo04sa.sistema_via_mail.repository.RutaRepository;
@@ -46,9 +48,17 @@ public class RutaService {
      * Lista todas las rutas
      */
     @Transactional(readOnly = true)
-    public List<Ruta> listarTodas() {
+    public List<RutaResumen> listarTodas() {
         log.debug("Listando todas las rutas");
-        return rutaRepository.findAll();
+        return rutaRepository.findResumenes();
+    }
+
+    /**
+     * Lista rutas con ID mayor al cursor (una página)
+     */
+    @Transactional(readOnly = true)
+    public List<RutaResumen> listarDesde(Long cursor, int limite) {
+        return rutaRepository.findDesde(cursor, PageRequest.of(0, limite));
     }
 
     /**
@@ -61,6 +71,15 @@ public class RutaService {
                 .orElseThrow(() -> new EntityNotFoundException("Ruta no encontrada con ID: " + id));
     }
 
+    /**
+     * Obtiene la proyección de una ruta (comandos de lectura)
+     */
+    @Transactional(readOnly = true)
+    public RutaResumen obtenerResumen(Long id) {
+        return rutaRepository.findResumenById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Ruta no encontrada con ID: " + id));
+    }
+
     /**
      * Actualiza una ruta
      */
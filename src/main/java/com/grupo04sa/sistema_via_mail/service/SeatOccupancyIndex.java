@@ -0,0 +1,290 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.grupo04sa.sistema_via_mail.repository.BoletoRepository;
+
+/**
+ * Índice en memoria de los asientos ocupados por viaje
+ *
+ * Cada viaje se carga una vez (findAsientosOcupadosByViaje) en un mapa de bits
+ * por número de asiento más un contador de ocupados: verificar un asiento y
+ * calcular los disponibles no consulta la BD. La venta marca el bit con CAS y
+ * lo libera si su transacción no se confirma. La restricción única de la BD
+ * sigue siendo la garantía final; las ventas hechas desde la aplicación web se
+ * reflejan al recargar el viaje cuando vence la vigencia. Un viaje con
+ * asientos no numéricos ("A1") queda en caché como no indexable durante la
+ * vigencia: sus ventas se verifican en la BD sin recargarlo.
+ */
+@Component
+public class SeatOccupancyIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatOccupancyIndex.class);
+
+    // Asientos con número mayor no se indexan (se verifican en la BD)
+    private static final int ASIENTO_MAXIMO = 4096;
+
+    private final BoletoRepository boletoRepository;
+    private final MetricsService metricsService;
+
+    @Value("${boletos.ocupacion.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${boletos.ocupacion.vigencia-ms:60000}")
+    private long vigenciaMs;
+
+    private final ConcurrentHashMap<Long, Ocupacion> viajes = new ConcurrentHashMap<>();
+
+    public SeatOccupancyIndex(BoletoRepository boletoRepository, MetricsService metricsService) {
+        this.boletoRepository = boletoRepository;
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * Resultado de una reserva; NO_INDEXADO indica que hay que verificar en la BD
+     */
+    public enum Resultado {
+        RESERVADO, OCUPADO, SIN_CUPO, NO_INDEXADO
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Reserva el asiento si está libre y queda cupo. Debe llamarse dentro de
+     * la transacción de la venta: si no se confirma, el asiento se libera.
+     */
+    public Resultado reservar(Long viajeId, String asiento, int capacidad) {
+        if (!habilitado || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return Resultado.NO_INDEXADO;
+        }
+
+        Ocupacion ocupacion = obtener(viajeId, capacidad);
+        if (!ocupacion.indexable()) {
+            // Viaje con asientos no numéricos: se verifica en la BD hasta que
+            // venza la vigencia, sin recargarlo en cada venta
+            metricsService.incrementar("asientos.indice.fallo");
+            return Resultado.NO_INDEXADO;
+        }
+        int numero = numeroAsiento(asiento);
+        if (numero < 0 || numero >= ocupacion.largo()) {
+            // El índice no refleja esta venta: se verifica en la BD y el viaje
+            // se recarga al terminar
+            metricsService.incrementar("asientos.indice.fallo");
+            invalidarAlTerminar(viajeId);
+            return Resultado.NO_INDEXADO;
+        }
+
+        metricsService.incrementar("asientos.indice.acierto");
+        Resultado resultado = ocupacion.reservar(numero, capacidad);
+        if (resultado == Resultado.RESERVADO) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        ocupacion.liberar(numero);
+                    }
+                }
+            });
+        }
+        return resultado;
+    }
+
+    /**
+     * Asientos disponibles del viaje; vacío si el viaje no se puede indexar
+     */
+    public OptionalInt disponibles(Long viajeId, int capacidad) {
+        if (!habilitado) {
+            return OptionalInt.empty();
+        }
+        Ocupacion ocupacion = obtener(viajeId, capacidad);
+        if (!ocupacion.indexable()) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(Math.max(0, capacidad - ocupacion.ocupados()));
+    }
+
+    /**
+     * Descarta el viaje; se vuelve a cargar desde la BD en el siguiente uso
+     */
+    public void invalidar(Long viajeId) {
+        viajes.remove(viajeId);
+    }
+
+    private void invalidarAlTerminar(Long viajeId) {
+        invalidar(viajeId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidar(viajeId);
+            }
+        });
+    }
+
+    /**
+     * Ocupación vigente del viaje. La consulta corre fuera del mapa (no dentro
+     * de compute, que bloquearía a los demás viajes del mismo segmento); si
+     * otro hilo instaló una carga mientras tanto, se usa esa.
+     */
+    private Ocupacion obtener(Long viajeId, int capacidad) {
+        Ocupacion actual = viajes.get(viajeId);
+        if (actual != null && !actual.vencida(vigenciaMs)) {
+            return actual;
+        }
+        Ocupacion cargada = cargar(viajeId, capacidad);
+        boolean instalada = actual == null
+                ? viajes.putIfAbsent(viajeId, cargada) == null
+                : viajes.replace(viajeId, actual, cargada);
+        if (instalada) {
+            return cargada;
+        }
+        Ocupacion ganadora = viajes.get(viajeId);
+        return ganadora != null ? ganadora : cargada;
+    }
+
+    private Ocupacion cargar(Long viajeId, int capacidad) {
+        long inicio = System.nanoTime();
+        List<String> asientos = boletoRepository.findAsientosOcupadosByViaje(viajeId);
+
+        int mayor = 0;
+        for (String asiento : asientos) {
+            int numero = numeroAsiento(asiento);
+            if (numero < 0) {
+                log.debug("Viaje {} con asiento no numérico '{}' - se verifica en la BD", viajeId, asiento);
+                return new Ocupacion(0);
+            }
+            mayor = Math.max(mayor, numero);
+        }
+
+        Ocupacion ocupacion = new Ocupacion(Math.max(mayor, Math.min(capacidad, ASIENTO_MAXIMO)) + 1);
+        for (String asiento : asientos) {
+            ocupacion.reservar(numeroAsiento(asiento), Integer.MAX_VALUE);
+        }
+        metricsService.registrarTiempo("asientos.indice.carga", inicio);
+        return ocupacion;
+    }
+
+    /**
+     * Número del asiento, o -1 si no es un entero positivo en forma canónica
+     * ("01" y "1" son asientos distintos en la BD)
+     */
+    private int numeroAsiento(String asiento) {
+        if (asiento == null || asiento.isEmpty() || asiento.length() > 4 || asiento.charAt(0) == '0') {
+            return -1;
+        }
+        int numero = 0;
+        for (int i = 0; i < asiento.length(); i++) {
+            char c = asiento.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            numero = numero * 10 + (c - '0');
+        }
+        return numero <= ASIENTO_MAXIMO ? numero : -1;
+    }
+
+    /**
+     * Elimina los viajes vencidos para no conservar viajes ya realizados
+     */
+    @Scheduled(fixedDelayString = "${boletos.ocupacion.limpieza-ms:600000}")
+    public void limpiar() {
+        viajes.values().removeIf(ocupacion -> ocupacion.vencida(vigenciaMs));
+    }
+
+    /**
+     * Ocupación de un viaje: un bit por número de asiento
+     */
+    private static final class Ocupacion {
+
+        private final AtomicLongArray bits;
+        private final AtomicInteger ocupados = new AtomicInteger();
+        private final long cargada = System.currentTimeMillis();
+
+        private Ocupacion(int largo) {
+            this.bits = new AtomicLongArray((largo + 63) / 64);
+        }
+
+        // Sin bits: el viaje tiene asientos no numéricos y se consulta la BD
+        private boolean indexable() {
+            return bits.length() > 0;
+        }
+
+        private int largo() {
+            return bits.length() * 64;
+        }
+
+        private int ocupados() {
+            return ocupados.get();
+        }
+
+        private boolean vencida(long vigenciaMs) {
+            return System.currentTimeMillis() - cargada >= vigenciaMs;
+        }
+
+        /**
+         * Marca el bit y luego toma un lugar del cupo; sin cupo se desmarca
+         */
+        private Resultado reservar(int numero, int capacidad) {
+            if (!marcar(numero)) {
+                return Resultado.OCUPADO;
+            }
+            while (true) {
+                int actual = ocupados.get();
+                if (actual >= capacidad) {
+                    desmarcar(numero);
+                    return Resultado.SIN_CUPO;
+                }
+                if (ocupados.compareAndSet(actual, actual + 1)) {
+                    return Resultado.RESERVADO;
+                }
+            }
+        }
+
+        private void liberar(int numero) {
+            if (desmarcar(numero)) {
+                ocupados.decrementAndGet();
+            }
+        }
+
+        private boolean marcar(int numero) {
+            int i = numero >>> 6;
+            long mascara = 1L << numero;
+            while (true) {
+                long actual = bits.get(i);
+                if ((actual & mascara) != 0) {
+                    return false;
+                }
+                if (bits.compareAndSet(i, actual, actual | mascara)) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean desmarcar(int numero) {
+            int i = numero >>> 6;
+            long mascara = 1L << numero;
+            while (true) {
+                long actual = bits.get(i);
+                if ((actual & mascara) == 0) {
+                    return false;
+                }
+                if (bits.compareAndSet(i, actual, actual & ~mascara)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
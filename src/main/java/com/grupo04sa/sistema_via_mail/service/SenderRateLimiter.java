@@ -0,0 +1,230 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.grupo04sa.sistema_via_mail.model.Usuario;
+import com.grupo04sa.sistema_via_mail.repository.UsuarioRepository;
+
+/**
+ * Límite de comandos por remitente (token bucket) y reparto equitativo
+ * entre remitentes dentro de cada ciclo (deficit round robin)
+ *
+ * Los correos que superan el límite no se rechazan: quedan sin marcar en la
+ * bandeja y se procesan en un ciclo posterior, cuando el remitente recuperó
+ * cupo. Capacidad y recarga se configuran por rol.
+ */
+@Service
+public class SenderRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(SenderRateLimiter.class);
+
+    private final UsuarioRepository usuarioRepository;
+    private final MetricsService metricsService;
+
+    @Value("${email.limite.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${email.limite.admin.capacidad:60}")
+    private int capacidadAdmin;
+
+    @Value("${email.limite.admin.por-minuto:60}")
+    private int porMinutoAdmin;
+
+    @Value("${email.limite.secretaria.capacidad:40}")
+    private int capacidadSecretaria;
+
+    @Value("${email.limite.secretaria.por-minuto:30}")
+    private int porMinutoSecretaria;
+
+    @Value("${email.limite.cliente.capacidad:5}")
+    private int capacidadCliente;
+
+    @Value("${email.limite.cliente.por-minuto:5}")
+    private int porMinutoCliente;
+
+    // Costo que cada remitente puede consumir por ronda del reparto
+    @Value("${email.limite.quantum:1}")
+    private int quantum;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public SenderRateLimiter(UsuarioRepository usuarioRepository, MetricsService metricsService) {
+        this.usuarioRepository = usuarioRepository;
+        this.metricsService = metricsService;
+        metricsService.registrarIndicador("limite.remitentes", buckets::size);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Ordena los correos del ciclo alternando entre remitentes (DRR) y deja
+     * fuera los que exceden el límite de su remitente. El orden de cada
+     * remitente se conserva. Retorna los correos a procesar en este ciclo.
+     * El tope se aplica durante el reparto: los correos que no entran no
+     * consumen cupo y quedan en la bandeja para el siguiente ciclo.
+     *
+     * @param remitenteDe Email del remitente de cada correo
+     * @param costoDe     Costo de cada correo en tokens (mínimo 1)
+     * @param maximo      Máximo de correos a admitir (0 = sin tope)
+     */
+    public <T> List<T> planificar(List<T> correos, Function<T, String> remitenteDe, ToIntFunction<T> costoDe,
+            int maximo) {
+        int tope = maximo > 0 ? maximo : Integer.MAX_VALUE;
+        if (!habilitado || correos.isEmpty()) {
+            return correos.size() > tope ? correos.subList(0, tope) : correos;
+        }
+
+        // Clave normalizada para el mapa; la dirección original para buscar el rol
+        Map<String, Deque<T>> colas = new LinkedHashMap<>();
+        Map<String, String> direcciones = new HashMap<>();
+        for (T correo : correos) {
+            String direccion = remitenteDe.apply(correo);
+            String clave = normalizar(direccion);
+            direcciones.putIfAbsent(clave, direccion);
+            colas.computeIfAbsent(clave, k -> new ArrayDeque<>()).add(correo);
+        }
+
+        Map<String, Integer> deficit = new HashMap<>();
+        List<T> admitidos = new ArrayList<>(correos.size());
+        int diferidos = 0;
+
+        while (!colas.isEmpty() && admitidos.size() < tope) {
+            Iterator<Map.Entry<String, Deque<T>>> it = colas.entrySet().iterator();
+            while (it.hasNext() && admitidos.size() < tope) {
+                Map.Entry<String, Deque<T>> entrada = it.next();
+                String remitente = entrada.getKey();
+                Deque<T> cola = entrada.getValue();
+                int disponible = deficit.merge(remitente, Math.max(1, quantum), Integer::sum);
+
+                while (!cola.isEmpty() && admitidos.size() < tope) {
+                    int costo = Math.max(1, costoDe.applyAsInt(cola.peek()));
+                    if (costo > disponible) {
+                        break;
+                    }
+                    if (!obtenerBucket(remitente, direcciones.get(remitente)).consumir(costo)) {
+                        // Sin cupo: el resto del remitente queda para otro ciclo
+                        diferidos += cola.size();
+                        cola.clear();
+                        break;
+                    }
+                    admitidos.add(cola.poll());
+                    disponible -= costo;
+                }
+
+                deficit.put(remitente, disponible);
+                if (cola.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+
+        if (diferidos > 0) {
+            metricsService.incrementar("limite.diferidos", diferidos);
+            log.info("{} correo(s) diferidos al siguiente ciclo por límite de remitente", diferidos);
+        }
+        metricsService.incrementar("limite.admitidos", admitidos.size());
+        return admitidos;
+    }
+
+    /**
+     * Bucket del remitente (clave normalizada). El rol se busca con la
+     * dirección tal como llegó, igual que la autorización del comando: la
+     * columna correo se compara respetando mayúsculas.
+     */
+    private TokenBucket obtenerBucket(String remitente, String direccion) {
+        TokenBucket bucket = buckets.get(remitente);
+        if (bucket != null) {
+            return bucket;
+        }
+        // El rol se busca fuera del mapa para no bloquearlo con la consulta
+        String rol = direccion == null ? "anonimo"
+                : usuarioRepository.findByCorreoAndActive(direccion.trim()).map(Usuario::getRol).orElse("anonimo");
+        TokenBucket nuevo = switch (rol) {
+            case "Admin" -> new TokenBucket(capacidadAdmin, porMinutoAdmin);
+            case "Secretaria" -> new TokenBucket(capacidadSecretaria, porMinutoSecretaria);
+            default -> new TokenBucket(capacidadCliente, porMinutoCliente);
+        };
+        TokenBucket existente = buckets.putIfAbsent(remitente, nuevo);
+        return existente != null ? existente : nuevo;
+    }
+
+    private String normalizar(String remitente) {
+        return remitente == null ? "" : remitente.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Descarta los buckets llenos sin uso reciente; también permite que un
+     * cambio de rol se aplique sin reiniciar
+     */
+    @Scheduled(fixedDelayString = "${email.limite.limpieza-ms:600000}")
+    public void limpiar() {
+        long limite = System.nanoTime() - TimeUnit.MINUTES.toNanos(10);
+        buckets.values().removeIf(bucket -> bucket.inactivoDesde(limite));
+    }
+
+    /**
+     * Token bucket sin bloqueos: el estado (tokens y última recarga) se
+     * reemplaza con compareAndSet
+     */
+    private static class TokenBucket {
+
+        private record Estado(double tokens, long recarga) {
+        }
+
+        private final double capacidad;
+        private final double tokensPorNano;
+        private final AtomicReference<Estado> estado;
+
+        private TokenBucket(int capacidad, int porMinuto) {
+            this.capacidad = Math.max(1, capacidad);
+            this.tokensPorNano = Math.max(0, porMinuto) / (double) TimeUnit.MINUTES.toNanos(1);
+            this.estado = new AtomicReference<>(new Estado(this.capacidad, System.nanoTime()));
+        }
+
+        /**
+         * Un costo mayor que la capacidad (un LOTE grande) consume el balde
+         * lleno; si no, ese correo quedaría diferido para siempre
+         */
+        private boolean consumir(int costo) {
+            double requerido = Math.min(costo, capacidad);
+            while (true) {
+                Estado actual = estado.get();
+                long ahora = System.nanoTime();
+                double tokens = Math.min(capacidad, actual.tokens() + (ahora - actual.recarga()) * tokensPorNano);
+                if (tokens < requerido) {
+                    return false;
+                }
+                if (estado.compareAndSet(actual, new Estado(tokens - requerido, ahora))) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean inactivoDesde(long nanos) {
+            Estado actual = estado.get();
+            return actual.recarga() < nanos
+                    && actual.tokens() + (System.nanoTime() - actual.recarga()) * tokensPorNano >= capacidad;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Receptor SMTP embebido: el MTA entrega los correos directamente a la
+ * aplicación y el comando se ejecuta al llegar, sin esperar al polling.
+ *
+ * Un único hilo atiende todas las conexiones con un Selector NIO (sin hilo
+ * por conexión). Cada mensaje recibido se procesa en la partición de su
+ * remitente (en orden de llegada para un mismo remitente); si se alcanza el
+ * máximo de comandos en curso se responde 451 y el MTA reintenta.
+ *
+ * Los comandos se autorizan por el remitente (From:), que el cliente SMTP
+ * puede falsificar: solo se aceptan conexiones del MTA de confianza
+ * (clientes-permitidos) y por defecto se escucha únicamente en loopback.
+ */
+@Component
+@ConditionalOnProperty(name = "mail.smtp.receptor.habilitado", havingValue = "true")
+public class SmtpReceiver {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpReceiver.class);
+
+    private final MessageProcessingService messageProcessingService;
+    private final EmailService emailService;
+    private final MetricsService metricsService;
+
+    @Value("${mail.smtp.receptor.host:127.0.0.1}")
+    private String host;
+
+    // Direcciones (o nombres) de los MTA que pueden entregar, separadas por coma
+    @Value("${mail.smtp.receptor.clientes-permitidos:127.0.0.1,::1}")
+    private String clientesPermitidos;
+
+    @Value("${mail.smtp.receptor.puerto:2525}")
+    private int puerto;
+
+    @Value("${mail.smtp.receptor.dominio:localhost}")
+    private String dominio;
+
+    @Value("${mail.smtp.receptor.tamano-maximo:1048576}")
+    private int tamanoMaximo;
+
+    @Value("${mail.smtp.receptor.conexiones-maximas:500}")
+    private int conexionesMaximas;
+
+    @Value("${mail.smtp.receptor.inactividad-ms:60000}")
+    private long inactividadMs;
+
+    @Value("${mail.smtp.receptor.concurrencia-maxima:16}")
+    private int concurrenciaMaxima;
+
+    private final Session session = Session.getInstance(new Properties());
+
+    private Selector selector;
+    private ServerSocketChannel servidor;
+    private PartitionedExecutor porRemitente;
+    private Semaphore permisos;
+    private final Set<InetAddress> permitidos = new HashSet<>();
+    private volatile boolean activo;
+    private int conexiones;
+
+    public SmtpReceiver(MessageProcessingService messageProcessingService, EmailService emailService,
+            MetricsService metricsService) {
+        this.messageProcessingService = messageProcessingService;
+        this.emailService = emailService;
+        this.metricsService = metricsService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() throws IOException {
+        for (String cliente : clientesPermitidos.split(",")) {
+            if (!cliente.isBlank()) {
+                permitidos.add(InetAddress.getByName(cliente.trim()));
+            }
+        }
+
+        selector = Selector.open();
+        servidor = ServerSocketChannel.open();
+        servidor.bind(new InetSocketAddress(host, puerto));
+        servidor.configureBlocking(false);
+        servidor.register(selector, SelectionKey.OP_ACCEPT);
+
+        // Capacidad por partición = permisos: ejecutar() nunca bloquea al selector
+        permisos = new Semaphore(Math.max(1, concurrenciaMaxima));
+        porRemitente = new PartitionedExecutor("smtp.receptor", concurrenciaMaxima, Math.max(1, concurrenciaMaxima),
+                metricsService);
+        activo = true;
+
+        Thread.ofPlatform().daemon().name("smtp-receptor").start(this::atender);
+        log.info("Receptor SMTP escuchando en {}:{} - clientes permitidos: {}", host, puerto, permitidos);
+    }
+
+    private void atender() {
+        while (activo) {
+            try {
+                selector.select(1000);
+                Iterator<SelectionKey> claves = selector.selectedKeys().iterator();
+                while (claves.hasNext()) {
+                    SelectionKey clave = claves.next();
+                    claves.remove();
+                    try {
+                        if (!clave.isValid()) {
+                            continue;
+                        }
+                        if (clave.isAcceptable()) {
+                            aceptar();
+                        } else {
+                            if (clave.isReadable()) {
+                                leer(clave);
+                            }
+                            if (clave.isValid() && clave.isWritable()) {
+                                escribir(clave);
+                            }
+                        }
+                    } catch (IOException e) {
+                        log.debug("Conexión SMTP cerrada: {}", e.getMessage());
+                        cerrar(clave);
+                    }
+                }
+                cerrarInactivas();
+            } catch (Exception e) {
+                if (activo) {
+                    log.error("Error en el receptor SMTP: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void aceptar() throws IOException {
+        SocketChannel canal = servidor.accept();
+        if (canal == null) {
+            return;
+        }
+        if (conexiones >= conexionesMaximas) {
+            metricsService.incrementar("smtp.receptor.conexiones.rechazadas");
+            canal.close();
+            return;
+        }
+        InetAddress cliente = ((InetSocketAddress) canal.getRemoteAddress()).getAddress();
+        if (!permitidos.contains(cliente)) {
+            // El canal aún es bloqueante: se rechaza en el saludo y se cierra
+            metricsService.incrementar("smtp.receptor.clientes.rechazados");
+            log.warn("Conexión SMTP rechazada de {} (no está en clientes-permitidos)", cliente.getHostAddress());
+            canal.write(ByteBuffer.wrap("554 5.7.1 Cliente no autorizado\r\n".getBytes(StandardCharsets.US_ASCII)));
+            canal.close();
+            return;
+        }
+
+        canal.configureBlocking(false);
+        SmtpSession sesion = new SmtpSession(canal, this::entregar, dominio, tamanoMaximo);
+        SelectionKey clave = canal.register(selector, SelectionKey.OP_READ, sesion);
+        conexiones++;
+        metricsService.incrementar("smtp.receptor.conexiones");
+        escribir(clave);
+    }
+
+    private void leer(SelectionKey clave) throws IOException {
+        SmtpSession sesion = (SmtpSession) clave.attachment();
+        int leidos = sesion.getCanal().read(sesion.getEntrada());
+        if (leidos < 0) {
+            cerrar(clave);
+            return;
+        }
+        sesion.procesarEntrada();
+        escribir(clave);
+    }
+
+    /**
+     * Escribe las respuestas pendientes; si el socket no acepta todo se
+     * espera a OP_WRITE para continuar
+     */
+    private void escribir(SelectionKey clave) throws IOException {
+        SmtpSession sesion = (SmtpSession) clave.attachment();
+        while (!sesion.getSalida().isEmpty()) {
+            ByteBuffer buffer = sesion.getSalida().peek();
+            sesion.getCanal().write(buffer);
+            if (buffer.hasRemaining()) {
+                clave.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            sesion.getSalida().poll();
+        }
+
+        if (sesion.debeCerrar()) {
+            cerrar(clave);
+        } else {
+            clave.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Entrega un mensaje completo a la partición de su remitente. Se ejecuta
+     * en el hilo del selector, por eso no bloquea: sin permisos disponibles
+     * se rechaza.
+     */
+    private boolean entregar(byte[] contenido) {
+        if (!permisos.tryAcquire()) {
+            metricsService.incrementar("smtp.receptor.mensajes.diferidos");
+            return false;
+        }
+
+        MimeMessage mensaje;
+        try {
+            mensaje = new MimeMessage(session, new ByteArrayInputStream(contenido));
+        } catch (MessagingException e) {
+            // Se acepta (250) igual: reintentarlo no lo haría válido
+            log.error("Mensaje SMTP inválido: {}", e.getMessage());
+            permisos.release();
+            return true;
+        }
+
+        metricsService.incrementar("smtp.receptor.mensajes");
+        long recibido = System.nanoTime();
+        try {
+            porRemitente.ejecutar(emailService.obtenerEmailRemitente(mensaje), () -> {
+                try {
+                    messageProcessingService.procesar(mensaje);
+                    metricsService.registrarTiempo("smtp.receptor.procesamiento", recibido);
+                } finally {
+                    permisos.release();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permisos.release();
+            return false;
+        }
+        return true;
+    }
+
+    private void cerrarInactivas() {
+        long limite = System.currentTimeMillis() - inactividadMs;
+        for (SelectionKey clave : selector.keys()) {
+            if (clave.attachment() instanceof SmtpSession sesion && sesion.getUltimaActividad() < limite) {
+                log.debug("Cerrando conexión SMTP inactiva");
+                cerrar(clave);
+            }
+        }
+    }
+
+    private void cerrar(SelectionKey clave) {
+        if (!clave.isValid()) {
+            return;
+        }
+        clave.cancel();
+        if (clave.attachment() instanceof SmtpSession sesion) {
+            conexiones--;
+            try {
+                sesion.getCanal().close();
+            } catch (IOException e) {
+                log.debug("Error al cerrar conexión SMTP: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        try {
+            if (selector != null) {
+                selector.wakeup();
+                for (SelectionKey clave : selector.keys()) {
+                    cerrar(clave);
+                }
+                selector.close();
+            }
+            if (servidor != null) {
+                servidor.close();
+            }
+        } catch (IOException e) {
+            log.debug("Error al detener receptor SMTP: {}", e.getMessage());
+        }
+        if (porRemitente != null) {
+            porRemitente.detener();
+        }
+        log.info("Receptor SMTP detenido");
+    }
+}
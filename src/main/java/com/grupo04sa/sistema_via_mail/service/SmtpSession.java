@@ -0,0 +1,212 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Estado de una conexión del receptor SMTP (no bloqueante)
+ *
+ * Recibe los bytes leídos por el selector, arma las líneas y responde según
+ * el diálogo SMTP (HELO/EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT). Las
+ * respuestas se encolan y el selector las escribe cuando el canal lo permite.
+ */
+class SmtpSession {
+
+    /**
+     * Recibe el contenido de un mensaje completo (DATA)
+     * Retorna false si no se puede aceptar en este momento
+     */
+    interface Entrega {
+        boolean entregar(byte[] contenido);
+    }
+
+    private enum Estado {
+        COMANDOS, DATOS
+    }
+
+    private static final int LINEA_MAXIMA = 1000;
+
+    private final SocketChannel canal;
+    private final Entrega entrega;
+    private final String dominio;
+    private final int tamanoMaximo;
+
+    private final ByteBuffer entrada = ByteBuffer.allocate(8192);
+    private final Deque<ByteBuffer> salida = new ArrayDeque<>();
+    private final ByteArrayOutputStream linea = new ByteArrayOutputStream();
+
+    private Estado estado = Estado.COMANDOS;
+    private ByteArrayOutputStream datos;
+    private boolean saludado;
+    private boolean remitente;
+    private int destinatarios;
+    private boolean excedido;
+    private boolean cerrar;
+    private long ultimaActividad = System.currentTimeMillis();
+
+    SmtpSession(SocketChannel canal, Entrega entrega, String dominio, int tamanoMaximo) {
+        this.canal = canal;
+        this.entrega = entrega;
+        this.dominio = dominio;
+        this.tamanoMaximo = tamanoMaximo;
+        responder("220 " + dominio + " ESMTP Sistema Via Mail");
+    }
+
+    SocketChannel getCanal() {
+        return canal;
+    }
+
+    ByteBuffer getEntrada() {
+        return entrada;
+    }
+
+    Deque<ByteBuffer> getSalida() {
+        return salida;
+    }
+
+    boolean debeCerrar() {
+        return cerrar;
+    }
+
+    long getUltimaActividad() {
+        return ultimaActividad;
+    }
+
+    /**
+     * Procesa los bytes acumulados en el buffer de entrada
+     */
+    void procesarEntrada() {
+        ultimaActividad = System.currentTimeMillis();
+        entrada.flip();
+        while (entrada.hasRemaining() && !cerrar) {
+            byte b = entrada.get();
+            if (b == '\n') {
+                byte[] bytes = linea.toByteArray();
+                int largo = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                linea.reset();
+                procesarLinea(bytes, largo);
+            } else if (estado == Estado.DATOS) {
+                if (linea.size() < tamanoMaximo) {
+                    linea.write(b);
+                } else {
+                    excedido = true;
+                }
+            } else if (linea.size() < LINEA_MAXIMA) {
+                linea.write(b);
+            }
+        }
+        entrada.compact();
+    }
+
+    private void procesarLinea(byte[] bytes, int largo) {
+        if (estado == Estado.DATOS) {
+            procesarLineaDatos(bytes, largo);
+            return;
+        }
+
+        String texto = new String(bytes, 0, largo, StandardCharsets.US_ASCII).trim();
+        String verbo = (texto.length() >= 4 ? texto.substring(0, 4) : texto).toUpperCase(Locale.ROOT);
+
+        switch (verbo) {
+            case "HELO" -> {
+                saludado = true;
+                reiniciar();
+                responder("250 " + dominio);
+            }
+            case "EHLO" -> {
+                saludado = true;
+                reiniciar();
+                responder("250-" + dominio);
+                responder("250-8BITMIME");
+                responder("250 SIZE " + tamanoMaximo);
+            }
+            case "MAIL" -> {
+                if (!saludado) {
+                    responder("503 5.5.1 Envie HELO/EHLO primero");
+                } else if (!texto.toUpperCase(Locale.ROOT).startsWith("MAIL FROM:")) {
+                    responder("501 5.5.4 Sintaxis: MAIL FROM:<direccion>");
+                } else {
+                    reiniciar();
+                    remitente = true;
+                    responder("250 2.1.0 OK");
+                }
+            }
+            case "RCPT" -> {
+                if (!remitente) {
+                    responder("503 5.5.1 Envie MAIL FROM primero");
+                } else if (!texto.toUpperCase(Locale.ROOT).startsWith("RCPT TO:")) {
+                    responder("501 5.5.4 Sintaxis: RCPT TO:<direccion>");
+                } else {
+                    destinatarios++;
+                    responder("250 2.1.5 OK");
+                }
+            }
+            case "DATA" -> {
+                if (destinatarios == 0) {
+                    responder("503 5.5.1 Envie RCPT TO primero");
+                } else {
+                    estado = Estado.DATOS;
+                    datos = new ByteArrayOutputStream();
+                    excedido = false;
+                    responder("354 Termine con <CRLF>.<CRLF>");
+                }
+            }
+            case "RSET" -> {
+                reiniciar();
+                responder("250 2.0.0 OK");
+            }
+            case "NOOP" -> responder("250 2.0.0 OK");
+            case "QUIT" -> {
+                responder("221 2.0.0 Adios");
+                cerrar = true;
+            }
+            default -> responder("502 5.5.2 Comando no soportado");
+        }
+    }
+
+    private void procesarLineaDatos(byte[] bytes, int largo) {
+        if (largo == 1 && bytes[0] == '.') {
+            finalizarDatos();
+            return;
+        }
+
+        // Quitar el punto de relleno (dot-stuffing)
+        int desde = largo > 0 && bytes[0] == '.' ? 1 : 0;
+        if (datos.size() + (largo - desde) + 2 > tamanoMaximo) {
+            excedido = true;
+            return;
+        }
+        datos.write(bytes, desde, largo - desde);
+        datos.write('\r');
+        datos.write('\n');
+    }
+
+    private void finalizarDatos() {
+        estado = Estado.COMANDOS;
+        byte[] contenido = datos.toByteArray();
+        datos = null;
+
+        if (excedido) {
+            responder("552 5.3.4 Mensaje demasiado grande");
+        } else if (entrega.entregar(contenido)) {
+            responder("250 2.0.0 Mensaje aceptado");
+        } else {
+            responder("451 4.3.2 Sistema ocupado, reintente mas tarde");
+        }
+        reiniciar();
+    }
+
+    private void reiniciar() {
+        remitente = false;
+        destinatarios = 0;
+    }
+
+    private void responder(String respuesta) {
+        salida.add(ByteBuffer.wrap((respuesta + "\r\n").getBytes(StandardCharsets.US_ASCII)));
+    }
+}
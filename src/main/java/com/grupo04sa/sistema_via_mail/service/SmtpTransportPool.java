@@ -0,0 +1,287 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Pool de conexiones SMTP para el envío de respuestas
+ *
+ * JavaMailSenderImpl abre una conexión (TCP + EHLO + AUTH) por cada send().
+ * El pool mantiene unas pocas conexiones abiertas y envía varias respuestas
+ * por cada una; se reciclan al llegar a N mensajes o al quedar inactivas.
+ */
+@Component
+public class SmtpTransportPool {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final JavaMailSender mailSender;
+    private final MetricsService metricsService;
+
+    @Value("${mail.smtp.pool.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${mail.smtp.pool.tamano:4}")
+    private int tamano;
+
+    @Value("${mail.smtp.pool.mensajes-por-conexion:100}")
+    private int mensajesPorConexion;
+
+    @Value("${mail.smtp.pool.inactividad-ms:30000}")
+    private long inactividadMs;
+
+    private final BlockingDeque<Conexion> libres = new LinkedBlockingDeque<>();
+    private Semaphore cupos;
+    private Session session;
+
+    public SmtpTransportPool(JavaMailSender mailSender, MetricsService metricsService) {
+        this.mailSender = mailSender;
+        this.metricsService = metricsService;
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        cupos = new Semaphore(Math.max(1, tamano));
+        if (mailSender instanceof JavaMailSenderImpl impl) {
+            session = impl.getSession();
+        } else if (habilitado) {
+            log.warn("JavaMailSender no es JavaMailSenderImpl - pool SMTP deshabilitado");
+            habilitado = false;
+        }
+        if (habilitado) {
+            log.info("Pool SMTP habilitado - {} conexión(es), reciclaje cada {} mensaje(s)",
+                    tamano, mensajesPorConexion);
+        }
+    }
+
+    /**
+     * Envía el mensaje por una conexión del pool
+     * Si el pool está deshabilitado se usa mailSender.send()
+     */
+    public void enviar(MimeMessage message) throws MessagingException {
+        if (!habilitado) {
+            long inicio = System.nanoTime();
+            mailSender.send(message);
+            metricsService.registrarTiempo("smtp.envio", inicio);
+            return;
+        }
+
+        List<MessagingException> errores = new ArrayList<>();
+        enviarPorConexion(List.of(message), (mensaje, e) -> errores.add(e));
+        if (!errores.isEmpty()) {
+            throw errores.get(0);
+        }
+    }
+
+    /**
+     * Envía varios mensajes por una misma conexión del pool. Un error en un
+     * mensaje no detiene el resto; se informa por alFallar.
+     */
+    public void enviarLote(List<MimeMessage> mensajes, BiConsumer<MimeMessage, Exception> alFallar) {
+        if (!habilitado) {
+            for (MimeMessage message : mensajes) {
+                try {
+                    long inicio = System.nanoTime();
+                    mailSender.send(message);
+                    metricsService.registrarTiempo("smtp.envio", inicio);
+                } catch (Exception e) {
+                    alFallar.accept(message, e);
+                }
+            }
+            return;
+        }
+
+        try {
+            enviarPorConexion(mensajes, alFallar::accept);
+        } catch (MessagingException e) {
+            mensajes.forEach(message -> alFallar.accept(message, e));
+        }
+    }
+
+    private void enviarPorConexion(List<MimeMessage> mensajes,
+            BiConsumer<MimeMessage, MessagingException> alFallar) throws MessagingException {
+        adquirirCupo();
+        Conexion conexion = null;
+        try {
+            for (MimeMessage message : mensajes) {
+                long inicio = System.nanoTime();
+                try {
+                    message.setSentDate(new Date());
+                    message.saveChanges();
+                    if (conexion == null) {
+                        conexion = obtener();
+                    }
+                    conexion = enviarPor(conexion, message);
+                    metricsService.registrarTiempo("smtp.envio", inicio);
+                } catch (SendFailedException e) {
+                    // Rechazo del destinatario: la conexión sigue siendo válida
+                    alFallar.accept(message, e);
+                } catch (MessagingException e) {
+                    // La conexión ya fue descartada; el siguiente mensaje abre otra
+                    conexion = null;
+                    alFallar.accept(message, e);
+                }
+            }
+        } finally {
+            if (conexion != null) {
+                devolver(conexion);
+            }
+            cupos.release();
+        }
+    }
+
+    /**
+     * Envía por la conexión indicada y retorna la conexión a seguir usando.
+     * Si una conexión reutilizada fue cerrada por el servidor se reintenta
+     * una vez con una nueva.
+     */
+    private Conexion enviarPor(Conexion conexion, MimeMessage message) throws MessagingException {
+        try {
+            conexion.enviar(message);
+            return conexion;
+        } catch (SendFailedException e) {
+            throw e;
+        } catch (MessagingException e) {
+            descartar(conexion);
+            if (!conexion.reutilizada) {
+                throw e;
+            }
+            log.debug("Conexión SMTP reutilizada caída, reintentando con una nueva: {}", e.getMessage());
+        }
+
+        Conexion nueva = crear();
+        try {
+            nueva.enviar(message);
+            return nueva;
+        } catch (MessagingException e) {
+            descartar(nueva);
+            throw new MessagingException(e.getMessage(), e);
+        }
+    }
+
+    private Conexion obtener() throws MessagingException {
+        Conexion conexion;
+        while ((conexion = libres.pollFirst()) != null) {
+            if (conexion.vigente()) {
+                conexion.reutilizada = true;
+                metricsService.incrementar("smtp.pool.acierto");
+                return conexion;
+            }
+            descartar(conexion);
+        }
+        metricsService.incrementar("smtp.pool.fallo");
+        return crear();
+    }
+
+    private Conexion crear() throws MessagingException {
+        long inicio = System.nanoTime();
+        JavaMailSenderImpl impl = (JavaMailSenderImpl) mailSender;
+
+        Transport transport = session.getTransport("smtp");
+        transport.connect(impl.getHost(), impl.getPort(), impl.getUsername(), impl.getPassword());
+
+        metricsService.registrarTiempo("smtp.conexion", inicio);
+        return new Conexion(transport);
+    }
+
+    private void devolver(Conexion conexion) {
+        if (conexion.enviados >= mensajesPorConexion) {
+            metricsService.incrementar("smtp.pool.reciclada");
+            descartar(conexion);
+            return;
+        }
+        // Al frente: se reutiliza la conexión más reciente y las demás expiran
+        libres.offerFirst(conexion);
+    }
+
+    private void descartar(Conexion conexion) {
+        try {
+            conexion.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error al cerrar conexión SMTP: {}", e.getMessage());
+        }
+    }
+
+    private void adquirirCupo() throws MessagingException {
+        try {
+            cupos.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Envío interrumpido esperando conexión SMTP", e);
+        }
+    }
+
+    /**
+     * Cierra las conexiones que superaron el tiempo de inactividad antes de
+     * que el servidor las corte
+     */
+    @Scheduled(fixedDelayString = "${mail.smtp.pool.limpieza-ms:10000}")
+    public void cerrarInactivas() {
+        Iterator<Conexion> it = libres.iterator();
+        while (it.hasNext()) {
+            Conexion conexion = it.next();
+            if (!conexion.vigente() && libres.remove(conexion)) {
+                descartar(conexion);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        Conexion conexion;
+        while ((conexion = libres.pollFirst()) != null) {
+            descartar(conexion);
+        }
+    }
+
+    /**
+     * Conexión SMTP abierta y su uso
+     */
+    private class Conexion {
+
+        private final Transport transport;
+        private int enviados;
+        private long ultimoUso = System.currentTimeMillis();
+        private boolean reutilizada;
+
+        private Conexion(Transport transport) {
+            this.transport = transport;
+        }
+
+        private void enviar(MimeMessage message) throws MessagingException {
+            transport.sendMessage(message, message.getAllRecipients());
+            enviados++;
+            ultimoUso = System.currentTimeMillis();
+        }
+
+        /**
+         * Solo por tiempo: isConnected() enviaría un NOOP por cada envío. Si el
+         * servidor la cerró antes, enviar() reintenta con una conexión nueva.
+         */
+        private boolean vigente() {
+            return System.currentTimeMillis() - ultimoUso < inactividadMs;
+        }
+    }
+}
@@ -5,10 +5,12 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.grupo04sa.sistema_via_mail.dto.UsuarioResumen;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.exception.ValidationException;
 import com.grupo04sa.sistema_via_mail.model.Usuario;
@@ -99,18 +101,36 @@ public class UsuarioService {
     /**
      * Listar todos los usuarios activos
      */
-    public List<Usuario> listarTodos() {
-        return usuarioRepository.findAllActive();
+    @Transactional(readOnly = true)
+    public List<UsuarioResumen> listarTodos() {
+        return usuarioRepository.findResumenesActivos();
     }
 
     /**
      * Listar usuarios por rol
      */
-    public List<Usuario> listarPorRol(String rol) {
+    @Transactional(readOnly = true)
+    public List<UsuarioResumen> listarPorRol(String rol) {
         if (!validator.isValidRol(rol)) {
             throw new ValidationException("rol", "Rol inválido");
         }
-        return usuarioRepository.findByRolAndActive(rol);
+        return usuarioRepository.findResumenesByRolActivos(rol);
+    }
+
+    /**
+     * Listar usuarios activos con id mayor al cursor (una página)
+     */
+    @Transactional(readOnly = true)
+    public List<UsuarioResumen> listarDesde(Long cursor, int limite) {
+        return usuarioRepository.findActivosDesde(cursor, PageRequest.of(0, limite));
+    }
+
+    /**
+     * Listar una página de usuarios por rol
+     */
+    @Transactional(readOnly = true)
+    public List<UsuarioResumen> listarPorRolDesde(String rol, Long cursor, int limite) {
+        return usuarioRepository.findByRolActivosDesde(rol, cursor, PageRequest.of(0, limite));
     }
 
     /**
@@ -121,11 +141,21 @@ public class UsuarioService {
                 .orElseThrow(() -> new EntityNotFoundException("Usuario", id));
     }
 
+    /**
+     * Obtener la proyección de un usuario (comandos de lectura)
+     */
+    @Transactional(readOnly = true)
+    public UsuarioResumen obtenerResumen(Long id) {
+        return usuarioRepository.findResumenById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Usuario", id));
+    }
+
     /**
      * Obtener usuario por CI
      */
-    public Usuario obtenerPorCI(String ci) {
-        return usuarioRepository.findByCiAndActive(ci)
+    @Transactional(readOnly = true)
+    public UsuarioResumen obtenerPorCI(String ci) {
+        return usuarioRepository.findResumenByCiActivo(ci)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario con CI " + ci + " no encontrado"));
     }
 
@@ -4,9 +4,11 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.grupo04sa.sistema_via_mail.dto.VehiculoResumen;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.exception.ValidationException;
 import com.grupo04sa.sistema_via_mail.model.Usuario;
@@ -67,9 +69,17 @@ public class VehiculoService {
      * Lista todos los vehículos
      */
     @Transactional(readOnly = true)
-    public List<Vehiculo> listarTodos() {
+    public List<VehiculoResumen> listarTodos() {
         log.debug("Listando todos los vehículos");
-        return vehiculoRepository.findAll();
+        return vehiculoRepository.findResumenes();
+    }
+
+    /**
+     * Lista vehículos con ID mayor al cursor (una página)
+     */
+    @Transactional(readOnly = true)
+    public List<VehiculoResumen> listarDesde(Long cursor, int limite) {
+        return vehiculoRepository.findDesde(cursor, PageRequest.of(0, limite));
     }
 
     /**
@@ -82,13 +92,22 @@ public class VehiculoService {
                 .orElseThrow(() -> new EntityNotFoundException("Vehículo no encontrado con ID: " + id));
     }
 
+    /**
+     * Obtiene la proyección de un vehículo (comandos de lectura)
+     */
+    @Transactional(readOnly = true)
+    public VehiculoResumen obtenerResumen(Long id) {
+        return vehiculoRepository.findResumenById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Vehículo no encontrado con ID: " + id));
+    }
+
     /**
      * Obtiene un vehículo por placa
      */
     @Transactional(readOnly = true)
-    public Vehiculo obtenerPorPlaca(String placa) {
+    public VehiculoResumen obtenerPorPlaca(String placa) {
         log.debug("Buscando vehículo con placa: {}", placa);
-        return vehiculoRepository.findByPlaca(placa.trim().toUpperCase())
+        return vehiculoRepository.findResumenByPlaca(placa.trim().toUpperCase())
                 .orElseThrow(() -> new EntityNotFoundException("Vehículo no encontrado con placa: " + placa));
     }
 
@@ -4,9 +4,11 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.grupo04sa.sistema_via_mail.dto.VentaResumen;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.model.Venta;
 import com.grupo04sa.sistema_via_mail.repository.VentaRepository;
@@ -29,9 +31,17 @@ public class VentaService {
      * Lista todas las ventas
      */
     @Transactional(readOnly = true)
-    public List<Venta> listarTodas() {
+    public List<VentaResumen> listarTodas() {
         log.debug("Listando todas las ventas");
-        return ventaRepository.findAll();
+        return ventaRepository.findResumenes();
+    }
+
+    /**
+     * Lista ventas con ID mayor al cursor (una página)
+     */
+    @Transactional(readOnly = true)
+    public List<VentaResumen> listarDesde(Long cursor, int limite) {
+        return ventaRepository.findDesde(cursor, PageRequest.of(0, limite));
     }
 
     /**
@@ -43,4 +53,13 @@ public class VentaService {
         return ventaRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Venta no encontrada con ID: " + id));
     }
+
+    /**
+     * Obtiene la proyección de una venta (comandos de lectura)
+     */
+    @Transactional(readOnly = true)
+    public VentaResumen obtenerResumen(Long id) {
+        return ventaRepository.findResumenById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Venta no encontrada con ID: " + id));
+    }
 }
@@ -7,9 +7,11 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.grupo04sa.sistema_via_mail.dto.ViajeResumen;
 import com.grupo04sa.sistema_via_mail.exception.EntityNotFoundException;
 import com.grupo04sa.sistema_via_mail.model.Ruta;
 import com.grupo04sa.sistema_via_mail.model.Vehiculo;
@@ -77,9 +79,17 @@ public class ViajeService {
      * Lista todos los viajes
      */
     @Transactional(readOnly = true)
-    public List<Viaje> listarTodos() {
+    public List<ViajeResumen> listarTodos() {
         log.debug("Listando todos los viajes");
-        return viajeRepository.findAll();
+        return viajeRepository.findResumenes();
+    }
+
+    /**
+     * Lista viajes con ID mayor al cursor (una página)
+     */
+    @Transactional(readOnly = true)
+    public List<ViajeResumen> listarDesde(Long cursor, int limite) {
+        return viajeRepository.findDesde(cursor, PageRequest.of(0, limite));
     }
 
     /**
@@ -92,6 +102,15 @@ public class ViajeService {
                 .orElseThrow(() -> new EntityNotFoundException("Viaje no encontrado con ID: " + id));
     }
 
+    /**
+     * Obtiene la proyección de un viaje (comandos de lectura)
+     */
+    @Transactional(readOnly = true)
+    public ViajeResumen obtenerResumen(Long id) {
+        return viajeRepository.findResumenById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Viaje no encontrado con ID: " + id));
+    }
+
     /**
      * Actualiza un viaje
      */
@@ -1,10 +1,22 @@
 package com.grupo04sa.sistema_via_mail.util;
 
+import java.io.IOException;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 
 import org.springframework.stereotype.Component;
 
+import com.grupo04sa.sistema_via_mail.dto.BoletoResumen;
+import com.grupo04sa.sistema_via_mail.dto.CommandResponse;
+import com.grupo04sa.sistema_via_mail.dto.EncomiendaResumen;
+import com.grupo04sa.sistema_via_mail.dto.PagoResumen;
+import com.grupo04sa.sistema_via_mail.dto.RutaResumen;
+import com.grupo04sa.sistema_via_mail.dto.UsuarioResumen;
+import com.grupo04sa.sistema_via_mail.dto.VehiculoResumen;
+import com.grupo04sa.sistema_via_mail.dto.VentaResumen;
+import com.grupo04sa.sistema_via_mail.dto.ViajeResumen;
 import com.grupo04sa.sistema_via_mail.model.Boleto;
 import com.grupo04sa.sistema_via_mail.model.Encomienda;
 import com.grupo04sa.sistema_via_mail.model.PagoVenta;
@@ -27,25 +39,32 @@ public class ResponseFormatter {
      * Formatea un Usuario para mostrar en respuesta
      */
     public String formatUsuario(Usuario usuario) {
+        return formatUsuario(UsuarioResumen.de(usuario));
+    }
+
+    /**
+     * Formatea la proyección de un Usuario
+     */
+    public String formatUsuario(UsuarioResumen usuario) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID: ").append(usuario.getId()).append("\n");
-        sb.append("- CI: ").append(usuario.getCi()).append("\n");
-        sb.append("- Nombre: ").append(usuario.getNombreCompleto()).append("\n");
-        sb.append("- Rol: ").append(usuario.getRol()).append("\n");
-        if (usuario.getTelefono() != null) {
-            sb.append("- Teléfono: ").append(usuario.getTelefono()).append("\n");
+        sb.append("- ID: ").append(usuario.id()).append("\n");
+        sb.append("- CI: ").append(usuario.ci()).append("\n");
+        sb.append("- Nombre: ").append(usuario.nombreCompleto()).append("\n");
+        sb.append("- Rol: ").append(usuario.rol()).append("\n");
+        if (usuario.telefono() != null) {
+            sb.append("- Teléfono: ").append(usuario.telefono()).append("\n");
         }
-        if (usuario.getCorreo() != null) {
-            sb.append("- Email: ").append(usuario.getCorreo()).append("\n");
+        if (usuario.correo() != null) {
+            sb.append("- Email: ").append(usuario.correo()).append("\n");
         }
-        sb.append("- Fecha Registro: ").append(usuario.getCreatedAt().format(DATE_FORMATTER)).append("\n");
+        sb.append("- Fecha Registro: ").append(usuario.createdAt().format(DATE_FORMATTER)).append("\n");
         return sb.toString();
     }
 
     /**
      * Formatea lista de Usuarios
      */
-    public String formatUsuarios(List<Usuario> usuarios) {
+    public String formatUsuarios(List<UsuarioResumen> usuarios) {
         if (usuarios.isEmpty()) {
             return "No se encontraron usuarios.";
         }
@@ -65,18 +84,25 @@ public class ResponseFormatter {
      * Formatea un Vehículo
      */
     public String formatVehiculo(Vehiculo vehiculo) {
+        return formatVehiculo(VehiculoResumen.de(vehiculo));
+    }
+
+    /**
+     * Formatea la proyección de un Vehículo
+     */
+    public String formatVehiculo(VehiculoResumen vehiculo) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID: ").append(vehiculo.getId()).append("\n");
-        sb.append("- Placa: ").append(vehiculo.getPlaca()).append("\n");
-        sb.append("- Marca/Modelo: ").append(vehiculo.getMarca()).append(" ").append(vehiculo.getModelo()).append("\n");
-        if (vehiculo.getAnio() != null) {
-            sb.append("- Año: ").append(vehiculo.getAnio()).append("\n");
+        sb.append("- ID: ").append(vehiculo.id()).append("\n");
+        sb.append("- Placa: ").append(vehiculo.placa()).append("\n");
+        sb.append("- Marca/Modelo: ").append(vehiculo.marca()).append(" ").append(vehiculo.modelo()).append("\n");
+        if (vehiculo.anio() != null) {
+            sb.append("- Año: ").append(vehiculo.anio()).append("\n");
         }
-        if (vehiculo.getColor() != null) {
-            sb.append("- Color: ").append(vehiculo.getColor()).append("\n");
+        if (vehiculo.color() != null) {
+            sb.append("- Color: ").append(vehiculo.color()).append("\n");
         }
-        if (vehiculo.getEstado() != null) {
-            sb.append("- Estado: ").append(vehiculo.getEstado()).append("\n");
+        if (vehiculo.estado() != null) {
+            sb.append("- Estado: ").append(vehiculo.estado()).append("\n");
         }
         return sb.toString();
     }
@@ -84,7 +110,7 @@ public class ResponseFormatter {
     /**
      * Formatea lista de Vehículos
      */
-    public String formatVehiculos(List<Vehiculo> vehiculos) {
+    public String formatVehiculos(List<VehiculoResumen> vehiculos) {
         if (vehiculos.isEmpty()) {
             return "No se encontraron vehículos.";
         }
@@ -104,18 +130,25 @@ public class ResponseFormatter {
      * Formatea una Ruta
      */
     public String formatRuta(Ruta ruta) {
+        return formatRuta(RutaResumen.de(ruta));
+    }
+
+    /**
+     * Formatea la proyección de una Ruta
+     */
+    public String formatRuta(RutaResumen ruta) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID: ").append(ruta.getId()).append("\n");
-        sb.append("- Nombre: ").append(ruta.getNombreCompleto()).append("\n");
-        sb.append("- Origen: ").append(ruta.getOrigen()).append("\n");
-        sb.append("- Destino: ").append(ruta.getDestino()).append("\n");
+        sb.append("- ID: ").append(ruta.id()).append("\n");
+        sb.append("- Nombre: ").append(ruta.nombreCompleto()).append("\n");
+        sb.append("- Origen: ").append(ruta.origen()).append("\n");
+        sb.append("- Destino: ").append(ruta.destino()).append("\n");
         return sb.toString();
     }
 
     /**
      * Formatea lista de Rutas
      */
-    public String formatRutas(List<Ruta> rutas) {
+    public String formatRutas(List<RutaResumen> rutas) {
         if (rutas.isEmpty()) {
             return "No se encontraron rutas.";
         }
@@ -135,22 +168,36 @@ public class ResponseFormatter {
      * Formatea un Viaje
      */
     public String formatViaje(Viaje viaje) {
+        return formatViaje(ViajeResumen.de(viaje));
+    }
+
+    /**
+     * Formatea la proyección de un Viaje
+     */
+    public String formatViaje(ViajeResumen viaje) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID: ").append(viaje.getId()).append("\n");
-        sb.append("- Fecha Salida: ").append(viaje.getFechaSalida().format(DATE_FORMATTER)).append("\n");
-        if (viaje.getFechaLlegada() != null) {
-            sb.append("- Fecha Llegada: ").append(viaje.getFechaLlegada().format(DATE_FORMATTER)).append("\n");
+        sb.append("- ID: ").append(viaje.id()).append("\n");
+        sb.append("- Fecha Salida: ").append(viaje.fechaSalida().format(DATE_FORMATTER)).append("\n");
+        if (viaje.fechaLlegada() != null) {
+            sb.append("- Fecha Llegada: ").append(viaje.fechaLlegada().format(DATE_FORMATTER)).append("\n");
         }
-        sb.append("- Precio: Bs. ").append(viaje.getPrecio()).append("\n");
-        sb.append("- Asientos Totales: ").append(viaje.getAsientosTotales()).append("\n");
-        sb.append("- Estado: ").append(viaje.getEstado()).append("\n");
+        sb.append("- Precio: Bs. ").append(viaje.precio()).append("\n");
+        sb.append("- Asientos Totales: ").append(viaje.asientosTotales()).append("\n");
+        sb.append("- Estado: ").append(viaje.estado()).append("\n");
         return sb.toString();
     }
 
+    /**
+     * Formatea la proyección de un Viaje con sus asientos disponibles
+     */
+    public String formatViajeConDisponibles(ViajeResumen viaje, int disponibles) {
+        return formatViaje(viaje) + "- Asientos Disponibles: " + disponibles + "\n";
+    }
+
     /**
      * Formatea lista de Viajes
      */
-    public String formatViajes(List<Viaje> viajes) {
+    public String formatViajes(List<ViajeResumen> viajes) {
         if (viajes.isEmpty()) {
             return "No se encontraron viajes.";
         }
@@ -170,21 +217,27 @@ public class ResponseFormatter {
      * Formatea un Boleto
      */
     public String formatBoleto(Boleto boleto) {
+        return formatBoleto(BoletoResumen.de(boleto));
+    }
+
+    /**
+     * Formatea la proyección de un Boleto
+     */
+    public String formatBoleto(BoletoResumen boleto) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID: ").append(boleto.getId()).append("\n");
-        sb.append("- Asiento: ").append(boleto.getAsiento()).append("\n");
-        sb.append("- Fecha Venta: ").append(boleto.getCreatedAt().format(DATE_FORMATTER)).append("\n");
+        sb.append("- ID: ").append(boleto.id()).append("\n");
+        sb.append("- Asiento: ").append(boleto.asiento()).append("\n");
+        sb.append("- Fecha Venta: ").append(boleto.createdAt().format(DATE_FORMATTER)).append("\n");
 
         // Agregar información de origen y destino
-        if (boleto.getRuta() != null) {
-            sb.append("- Origen: ").append(boleto.getRuta().getOrigen()).append("\n");
-            sb.append("- Destino: ").append(boleto.getRuta().getDestino()).append("\n");
+        if (boleto.origen() != null) {
+            sb.append("- Origen: ").append(boleto.origen()).append("\n");
+            sb.append("- Destino: ").append(boleto.destino()).append("\n");
         }
 
         // Agregar información del cliente
-        if (boleto.getVenta() != null && boleto.getVenta().getUsuario() != null) {
-            Usuario cliente = boleto.getVenta().getUsuario();
-            String nombreCompleto = cliente.getNombre() + " " + cliente.getApellido();
+        if (boleto.clienteNombre() != null) {
+            String nombreCompleto = boleto.clienteNombre() + " " + boleto.clienteApellido();
             sb.append("- Cliente: ").append(nombreCompleto).append("\n");
         }
 
@@ -195,17 +248,24 @@ public class ResponseFormatter {
      * Formatea una Encomienda
      */
     public String formatEncomienda(Encomienda encomienda) {
+        return formatEncomienda(EncomiendaResumen.de(encomienda));
+    }
+
+    /**
+     * Formatea la proyección de una Encomienda
+     */
+    public String formatEncomienda(EncomiendaResumen encomienda) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID Venta: ").append(encomienda.getVentaId()).append("\n");
-        sb.append("- Peso: ").append(encomienda.getPeso()).append(" kg\n");
-        sb.append("- Destinatario: ").append(encomienda.getNombreDestinatario()).append("\n");
-        if (encomienda.getDescripcion() != null) {
-            sb.append("- Descripción: ").append(encomienda.getDescripcion()).append("\n");
+        sb.append("- ID Venta: ").append(encomienda.ventaId()).append("\n");
+        sb.append("- Peso: ").append(encomienda.peso()).append(" kg\n");
+        sb.append("- Destinatario: ").append(encomienda.nombreDestinatario()).append("\n");
+        if (encomienda.descripcion() != null) {
+            sb.append("- Descripción: ").append(encomienda.descripcion()).append("\n");
         }
-        sb.append("- Modalidad Pago: ").append(encomienda.getModalidadPago()).append("\n");
-        sb.append("- Monto Pagado Origen: Bs. ").append(encomienda.getMontoPagadoOrigen()).append("\n");
-        sb.append("- Monto Pagado Destino: Bs. ").append(encomienda.getMontoPagadoDestino()).append("\n");
-        sb.append("- Fecha Registro: ").append(encomienda.getCreatedAt().format(DATE_FORMATTER)).append("\n");
+        sb.append("- Modalidad Pago: ").append(encomienda.modalidadPago()).append("\n");
+        sb.append("- Monto Pagado Origen: Bs. ").append(encomienda.montoPagadoOrigen()).append("\n");
+        sb.append("- Monto Pagado Destino: Bs. ").append(encomienda.montoPagadoDestino()).append("\n");
+        sb.append("- Fecha Registro: ").append(encomienda.createdAt().format(DATE_FORMATTER)).append("\n");
         return sb.toString();
     }
 
@@ -213,39 +273,46 @@ public class ResponseFormatter {
      * Formatea una Venta
      */
     public String formatVenta(Venta venta) {
+        return formatVenta(VentaResumen.de(venta));
+    }
+
+    /**
+     * Formatea la proyección de una Venta
+     */
+    public String formatVenta(VentaResumen venta) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID: ").append(venta.getId()).append("\n");
-        sb.append("- Tipo: ").append(venta.getTipo()).append("\n");
-        sb.append("- Monto Total: Bs. ").append(venta.getMontoTotal()).append("\n");
-        sb.append("- Estado Pago: ").append(venta.getEstadoPago()).append("\n");
-        sb.append("- Fecha: ").append(venta.getFecha().format(DATE_FORMATTER)).append("\n");
+        sb.append("- ID: ").append(venta.id()).append("\n");
+        sb.append("- Tipo: ").append(venta.tipo()).append("\n");
+        sb.append("- Monto Total: Bs. ").append(venta.montoTotal()).append("\n");
+        sb.append("- Estado Pago: ").append(venta.estadoPago()).append("\n");
+        sb.append("- Fecha: ").append(venta.fecha().format(DATE_FORMATTER)).append("\n");
         return sb.toString();
     }
 
     /**
      * Formatea una Venta con sus pagos relacionados
      */
-    public String formatVentaConPagos(Venta venta, List<PagoVenta> pagos) {
+    public String formatVentaConPagos(VentaResumen venta, List<PagoResumen> pagos) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID: ").append(venta.getId()).append("\n");
-        sb.append("- Tipo: ").append(venta.getTipo()).append("\n");
-        sb.append("- Monto Total: Bs. ").append(venta.getMontoTotal()).append("\n");
-        sb.append("- Estado Pago: ").append(venta.getEstadoPago()).append("\n");
-        sb.append("- Fecha: ").append(venta.getFecha().format(DATE_FORMATTER)).append("\n");
+        sb.append("- ID: ").append(venta.id()).append("\n");
+        sb.append("- Tipo: ").append(venta.tipo()).append("\n");
+        sb.append("- Monto Total: Bs. ").append(venta.montoTotal()).append("\n");
+        sb.append("- Estado Pago: ").append(venta.estadoPago()).append("\n");
+        sb.append("- Fecha: ").append(venta.fecha().format(DATE_FORMATTER)).append("\n");
 
         if (pagos != null && !pagos.isEmpty()) {
             sb.append("\n💵 PAGOS REALIZADOS (" + pagos.size() + "):\n");
             java.math.BigDecimal totalPagado = java.math.BigDecimal.ZERO;
-            for (PagoVenta pago : pagos) {
-                sb.append("  Cuota #").append(pago.getNumCuota());
-                sb.append(" - Bs. ").append(pago.getMonto());
-                sb.append(" (").append(pago.getMetodoPago()).append(")");
-                sb.append(" - ").append(pago.getFechaPago().format(DATE_FORMATTER));
+            for (PagoResumen pago : pagos) {
+                sb.append("  Cuota #").append(pago.numCuota());
+                sb.append(" - Bs. ").append(pago.monto());
+                sb.append(" (").append(pago.metodoPago()).append(")");
+                sb.append(" - ").append(pago.fechaPago().format(DATE_FORMATTER));
                 sb.append("\n");
-                totalPagado = totalPagado.add(pago.getMonto());
+                totalPagado = totalPagado.add(pago.monto());
             }
             sb.append("  Total Pagado: Bs. ").append(totalPagado).append("\n");
-            java.math.BigDecimal saldo = venta.getMontoTotal().subtract(totalPagado);
+            java.math.BigDecimal saldo = venta.montoTotal().subtract(totalPagado);
             if (saldo.compareTo(java.math.BigDecimal.ZERO) > 0) {
                 sb.append("  Saldo Pendiente: Bs. ").append(saldo).append("\n");
             }
@@ -257,7 +324,7 @@ public class ResponseFormatter {
     /**
      * Formatea lista de Ventas
      */
-    public String formatVentas(List<Venta> ventas) {
+    public String formatVentas(List<VentaResumen> ventas) {
         if (ventas.isEmpty()) {
             return "No se encontraron ventas.";
         }
@@ -277,14 +344,21 @@ public class ResponseFormatter {
      * Formatea un PagoVenta
      */
     public String formatPago(PagoVenta pago) {
+        return formatPago(PagoResumen.de(pago));
+    }
+
+    /**
+     * Formatea la proyección de un PagoVenta
+     */
+    public String formatPago(PagoResumen pago) {
         StringBuilder sb = new StringBuilder();
-        sb.append("- ID: ").append(pago.getId()).append("\n");
-        sb.append("- Cuota: ").append(pago.getNumCuota()).append("\n");
-        sb.append("- Monto: Bs. ").append(pago.getMonto()).append("\n");
-        sb.append("- Método: ").append(pago.getMetodoPago()).append("\n");
-        sb.append("- Estado: ").append(pago.getEstadoPago()).append("\n");
-        if (pago.getFechaPago() != null) {
-            sb.append("- Fecha Pago: ").append(pago.getFechaPago().format(DATE_FORMATTER)).append("\n");
+        sb.append("- ID: ").append(pago.id()).append("\n");
+        sb.append("- Cuota: ").append(pago.numCuota()).append("\n");
+        sb.append("- Monto: Bs. ").append(pago.monto()).append("\n");
+        sb.append("- Método: ").append(pago.metodoPago()).append("\n");
+        sb.append("- Estado: ").append(pago.estadoPago()).append("\n");
+        if (pago.fechaPago() != null) {
+            sb.append("- Fecha Pago: ").append(pago.fechaPago().format(DATE_FORMATTER)).append("\n");
         }
         return sb.toString();
     }
@@ -292,7 +366,7 @@ public class ResponseFormatter {
     /**
      * Formatea lista de Pagos
      */
-    public String formatPagos(List<PagoVenta> pagos) {
+    public String formatPagos(List<PagoResumen> pagos) {
         if (pagos.isEmpty()) {
             return "No se encontraron pagos.";
         }
@@ -319,6 +393,50 @@ public class ResponseFormatter {
         return "Total: " + lista.size() + " " + nombreEntidad + " encontrado(s).";
     }
 
+    /**
+     * Escribe un listado fila por fila en el destino, sin armarlo completo en
+     * memoria (exportaciones). El total va al final porque no se conoce antes.
+     *
+     * @return Cantidad de filas escritas
+     */
+    public <T> long escribirLista(Iterator<T> filas, String etiqueta, Function<T, String> formato,
+            Appendable destino) throws IOException {
+        long total = 0;
+        while (filas.hasNext()) {
+            T fila = filas.next();
+            total++;
+            destino.append(etiqueta).append(" #").append(String.valueOf(total)).append(":\n");
+            destino.append(formato.apply(fila)).append("\n");
+        }
+        destino.append("Total: ").append(String.valueOf(total)).append(" registro(s)\n");
+        return total;
+    }
+
+    /**
+     * Formatea las respuestas de un LOTE, una por comando y en orden
+     */
+    public String formatLote(List<CommandResponse> respuestas) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Total: ").append(respuestas.size()).append(" comando(s)\n\n");
+
+        for (int i = 0; i < respuestas.size(); i++) {
+            CommandResponse respuesta = respuestas.get(i);
+            sb.append("#").append(i + 1).append(" ").append(respuesta.getComando())
+                    .append(" - ").append(respuesta.getEstado()).append("\n");
+            if (respuesta.getMensajeError() != null && !respuesta.getMensajeError().isEmpty()) {
+                sb.append("  Error: ").append(respuesta.getMensajeError()).append("\n");
+            } else if (!"EXITOSO".equals(respuesta.getEstado()) && respuesta.getMensaje() != null) {
+                sb.append("  ").append(respuesta.getMensaje()).append("\n");
+            }
+            if (respuesta.getDatos() != null && !respuesta.getDatos().isEmpty()) {
+                sb.append("  ").append(respuesta.getDatos().strip().replace("\n", "\n  ")).append("\n");
+            }
+            sb.append("\n");
+        }
+
+        return sb.toString();
+    }
+
     /**
      * Formatea mensaje de éxito simple
      */
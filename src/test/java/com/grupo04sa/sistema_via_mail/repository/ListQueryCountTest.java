@@ -0,0 +1,168 @@
+package com.grupo04sa.sistema_via_mail.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.grupo04sa.sistema_via_mail.dto.BoletoResumen;
+import com.grupo04sa.sistema_via_mail.model.Boleto;
+import com.grupo04sa.sistema_via_mail.model.Ruta;
+import com.grupo04sa.sistema_via_mail.model.Usuario;
+import com.grupo04sa.sistema_via_mail.model.Vehiculo;
+import com.grupo04sa.sistema_via_mail.model.Venta;
+import com.grupo04sa.sistema_via_mail.model.Viaje;
+import com.grupo04sa.sistema_via_mail.util.ResponseFormatter;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * LISBOL y LISVEN deben ejecutar la misma cantidad de sentencias con 1 o con N
+ * filas (sin una consulta por fila al formatear la respuesta)
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true" })
+class ListQueryCountTest {
+
+    // Configuración propia: la de la aplicación arrastra el scheduler de correo
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = Boleto.class)
+    @EnableJpaRepositories(basePackageClasses = BoletoRepository.class)
+    static class Configuracion {
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private BoletoRepository boletoRepository;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    private final ResponseFormatter formatter = new ResponseFormatter();
+
+    private Statistics estadisticas;
+    private Usuario cliente;
+    private Vehiculo vehiculo;
+    private Ruta ruta;
+    private Viaje viaje;
+    private int secuencia;
+
+    @BeforeEach
+    void configurar() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        cliente = usuario("Cliente");
+        Usuario conductor = usuario("Conductor");
+
+        vehiculo = new Vehiculo();
+        vehiculo.setPlaca("ABC-123");
+        vehiculo.setMarca("Volvo");
+        vehiculo.setModelo("B420");
+        vehiculo.setConductor(conductor);
+        entityManager.persist(vehiculo);
+
+        ruta = new Ruta();
+        ruta.setOrigen("Santa Cruz");
+        ruta.setDestino("Comarapa");
+        entityManager.persist(ruta);
+
+        viaje = new Viaje();
+        viaje.setRuta(ruta);
+        viaje.setVehiculo(vehiculo);
+        viaje.setFechaSalida(LocalDateTime.now().plusDays(1));
+        viaje.setPrecio(new BigDecimal("50.00"));
+        viaje.setAsientosTotales(40);
+        viaje.setEstado("programado");
+        entityManager.persist(viaje);
+    }
+
+    @Test
+    void lisbolNoDependeDeLaCantidadDeBoletos() {
+        venderBoletos(1);
+        long conUno = sentencias(() -> formatearBoletos(boletoRepository.findResumenes()));
+
+        venderBoletos(9);
+        long conDiez = sentencias(() -> formatearBoletos(boletoRepository.findResumenes()));
+
+        assertThat(conUno).isEqualTo(1);
+        assertThat(conDiez).isEqualTo(conUno);
+        assertThat(sentencias(() -> formatearBoletos(boletoRepository.findResumenesByViajeId(viaje.getId()))))
+                .isEqualTo(conUno);
+    }
+
+    @Test
+    void lisvenNoDependeDeLaCantidadDeVentas() {
+        venderBoletos(1);
+        long conUna = sentencias(() -> formatter.formatVentas(ventaRepository.findResumenes()));
+
+        venderBoletos(9);
+        long conDiez = sentencias(() -> formatter.formatVentas(ventaRepository.findResumenes()));
+
+        // La encomienda (1:1 inverso) no genera una consulta por venta
+        assertThat(conUna).isEqualTo(1);
+        assertThat(conDiez).isEqualTo(conUna);
+    }
+
+    private long sentencias(Runnable listado) {
+        entityManager.flush();
+        entityManager.clear();
+        estadisticas.clear();
+        listado.run();
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    private void formatearBoletos(List<BoletoResumen> boletos) {
+        boletos.forEach(formatter::formatBoleto);
+    }
+
+    private void venderBoletos(int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            Venta venta = new Venta();
+            venta.setFecha(LocalDateTime.now());
+            venta.setMontoTotal(new BigDecimal("50.00"));
+            venta.setTipo("Boleto");
+            venta.setEstadoPago("Pagado");
+            venta.setUsuario(cliente);
+            venta.setVehiculo(vehiculo);
+            entityManager.persist(venta);
+
+            Boleto boleto = new Boleto();
+            boleto.setAsiento(String.valueOf(++secuencia));
+            boleto.setVenta(venta);
+            boleto.setRuta(ruta);
+            boleto.setViaje(viaje);
+            entityManager.persist(boleto);
+        }
+    }
+
+    private Usuario usuario(String rol) {
+        Usuario usuario = new Usuario();
+        usuario.setNombre(rol);
+        usuario.setApellido("Prueba");
+        usuario.setCi("CI-" + rol);
+        usuario.setCorreo(rol.toLowerCase() + "@example.com");
+        usuario.setPassword("secreto");
+        usuario.setRol(rol);
+        entityManager.persist(usuario);
+        return usuario;
+    }
+}
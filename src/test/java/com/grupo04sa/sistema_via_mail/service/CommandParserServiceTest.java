@@ -0,0 +1,103 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.grupo04sa.sistema_via_mail.dto.CommandRequest;
+import com.grupo04sa.sistema_via_mail.exception.CommandException;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+
+class CommandParserServiceTest {
+
+    private static final String REMITENTE = "cliente@example.com";
+
+    private CommandParserService parser;
+
+    @BeforeEach
+    void configurar() {
+        parser = new CommandParserService();
+        ReflectionTestUtils.setField(parser, "maximoLote", 3);
+    }
+
+    @Test
+    void parseaLasLineasDelLote() throws Exception {
+        CommandRequest lote = parser.parsear(correo("LOTE", """
+                LISBOL
+
+                > GETVIA["1"] citado
+                INSBOL["1","12","5"]
+                --\s
+                LISVEN
+                """), REMITENTE);
+
+        assertThat(lote.getComando()).isEqualTo("LOTE");
+        assertThat(lote.getLote()).extracting(CommandRequest::getComando).containsExactly("LISBOL", "INSBOL");
+        assertThat(lote.getLote().get(1).getParametros()).containsExactly("1", "12", "5");
+        assertThat(lote.getLote()).allMatch(linea -> REMITENTE.equals(linea.getEmailRemitente()));
+    }
+
+    @Test
+    void conservaLosParametrosDelAsunto() throws Exception {
+        CommandRequest lote = parser.parsear(correo("LOTE[\"ATOMICO\"]", "LISBOL\n"), REMITENTE);
+
+        assertThat(lote.getParametros()).containsExactly("ATOMICO");
+        assertThat(lote.getLote()).hasSize(1);
+    }
+
+    @Test
+    void tomaLaPrimeraParteDeTextoDeUnMultipart() throws Exception {
+        MimeMessage mensaje = new MimeMessage(Session.getInstance(new Properties()));
+        mensaje.setSubject("LOTE");
+        MimeBodyPart texto = new MimeBodyPart();
+        texto.setText("LISVEN\n", "UTF-8");
+        MimeBodyPart html = new MimeBodyPart();
+        html.setContent("<p>LISBOL</p>", "text/html; charset=UTF-8");
+        mensaje.setContent(new MimeMultipart(texto, html));
+        mensaje.saveChanges();
+
+        assertThat(parser.parsear(mensaje, REMITENTE).getLote())
+                .extracting(CommandRequest::getComando).containsExactly("LISVEN");
+    }
+
+    @Test
+    void unaLineaInvalidaRechazaElLote() {
+        assertThatThrownBy(() -> parser.parsear(correo("LOTE", "LISBOL\nlisbol mal\n"), REMITENTE))
+                .isInstanceOf(CommandException.class)
+                .hasMessageStartingWith("Línea 2 del lote");
+    }
+
+    @Test
+    void rechazaUnLoteDentroDeOtro() {
+        assertThatThrownBy(() -> parser.parsear(correo("LOTE", "LOTE\n"), REMITENTE))
+                .isInstanceOf(CommandException.class)
+                .hasMessageContaining("no se admite LOTE");
+    }
+
+    @Test
+    void rechazaUnLoteVacioOQueSuperaElMaximo() {
+        assertThatThrownBy(() -> parser.parsear(correo("LOTE", "\n> solo cita\n"), REMITENTE))
+                .isInstanceOf(CommandException.class)
+                .hasMessage("El lote no contiene comandos");
+        assertThatThrownBy(() -> parser.parsear(correo("LOTE", "LISBOL\nLISVEN\nLISBOL\nLISVEN\n"), REMITENTE))
+                .isInstanceOf(CommandException.class)
+                .hasMessageContaining("máximo de 3");
+    }
+
+    private MimeMessage correo(String asunto, String cuerpo) throws Exception {
+        MimeMessage mensaje = new MimeMessage(Session.getInstance(new Properties()));
+        mensaje.setSubject(asunto);
+        mensaje.setText(cuerpo, "UTF-8");
+        mensaje.saveChanges();
+        return mensaje;
+    }
+}
@@ -0,0 +1,89 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import jakarta.mail.Folder;
+
+class ImapIdleListenerTest {
+
+    private static final String CUENTA = "grupo04sa@localhost";
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP_IMAP);
+
+    private final BlockingQueue<Object> eventos = new LinkedBlockingQueue<>();
+    private ImapIdleListener listener;
+
+    @BeforeEach
+    void configurar() {
+        greenMail.setUser(CUENTA, "grupo04sa", "secreto");
+
+        ImapConnectionFactory connectionFactory = new ImapConnectionFactory();
+        ReflectionTestUtils.setField(connectionFactory, "imapHost", "127.0.0.1");
+        ReflectionTestUtils.setField(connectionFactory, "imapPort", ServerSetupTest.IMAP.getPort());
+        ReflectionTestUtils.setField(connectionFactory, "imapUsername", "grupo04sa");
+        ReflectionTestUtils.setField(connectionFactory, "imapPassword", "secreto");
+        ReflectionTestUtils.setField(connectionFactory, "imapSslEnable", false);
+
+        listener = new ImapIdleListener(connectionFactory, eventos::add);
+        ReflectionTestUtils.setField(listener, "idleHabilitado", true);
+    }
+
+    @AfterEach
+    void detener() {
+        listener.detener();
+    }
+
+    @Test
+    void publicaElAvisoCuandoLlegaUnCorreoDuranteIdle() throws Exception {
+        listener.iniciar();
+        esperarIdle();
+
+        GreenMailUtil.sendTextEmailTest(CUENTA, "cliente@localhost", "LISBOL", "");
+
+        Object evento = eventos.poll(10, TimeUnit.SECONDS);
+        assertThat(evento).isInstanceOf(NuevosCorreosEvent.class);
+        assertThat(((NuevosCorreosEvent) evento).getCantidad()).isEqualTo(1);
+    }
+
+    @Test
+    void sinIdleNoAbreLaEscucha() throws Exception {
+        ReflectionTestUtils.setField(listener, "idleHabilitado", false);
+
+        listener.iniciar();
+        GreenMailUtil.sendTextEmailTest(CUENTA, "cliente@localhost", "LISBOL", "");
+
+        assertThat(eventos.poll(1, TimeUnit.SECONDS)).isNull();
+    }
+
+    /**
+     * Espera a que la escucha abra el INBOX y entre en IDLE
+     */
+    private void esperarIdle() throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < limite) {
+            Folder folder = (Folder) ReflectionTestUtils.getField(listener, "folder");
+            if (folder != null && folder.isOpen()) {
+                // Margen para que el hilo pase de open() a idle()
+                Thread.sleep(500);
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("La escucha IMAP IDLE no se inició");
+    }
+}
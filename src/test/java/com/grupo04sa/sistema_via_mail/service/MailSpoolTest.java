@@ -0,0 +1,177 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+class MailSpoolTest {
+
+    @TempDir
+    Path carpeta;
+
+    private final MessageProcessingService procesamiento = mock(MessageProcessingService.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private MailSpool spool;
+
+    @BeforeEach
+    void configurar() {
+        when(emailService.obtenerEmailRemitente(any()))
+                .thenAnswer(inv -> ((InternetAddress) inv.<Message>getArgument(0).getFrom()[0]).getAddress());
+    }
+
+    @AfterEach
+    void detener() {
+        if (spool != null) {
+            spool.detener();
+        }
+    }
+
+    @Test
+    void procesaTodosLosCorreosAgregados() throws Exception {
+        List<String> asuntos = new CopyOnWriteArrayList<>();
+        CountDownLatch procesados = new CountDownLatch(3);
+        doAnswer(inv -> {
+            asuntos.add(inv.<Message>getArgument(0).getSubject());
+            procesados.countDown();
+            return null;
+        }).when(procesamiento).procesar(any());
+
+        spool = iniciar();
+        spool.agregar(correo("LISBOL"));
+        spool.agregar(correo("LISVEN"));
+        spool.agregar(correo("LISVIA"));
+
+        assertThat(procesados.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(asuntos).containsExactlyInAnyOrder("LISBOL", "LISVEN", "LISVIA");
+    }
+
+    @Test
+    void elCursorNoPasaUnRegistroEnCurso() throws Exception {
+        CountDownLatch liberarPrimero = new CountDownLatch(1);
+        CountDownLatch segundoProcesado = new CountDownLatch(1);
+        doAnswer(inv -> {
+            if ("PRIMERO".equals(inv.<Message>getArgument(0).getSubject())) {
+                liberarPrimero.await(5, TimeUnit.SECONDS);
+            } else {
+                segundoProcesado.countDown();
+            }
+            return null;
+        }).when(procesamiento).procesar(any());
+
+        spool = iniciar();
+        // Remitentes en particiones distintas: el segundo no espera al primero
+        spool.agregar(correo("PRIMERO", "primero@example.com"));
+        spool.agregar(correo("SEGUNDO", "segundo@example.com"));
+
+        assertThat(segundoProcesado.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(offsetConfirmado()).isZero();
+
+        liberarPrimero.countDown();
+        verify(procesamiento, timeout(5000).times(2)).procesar(any());
+        esperarHasta(() -> offsetConfirmado() > 0);
+    }
+
+    @Test
+    void conservaElOrdenDeUnMismoRemitente() throws Exception {
+        List<String> asuntos = new CopyOnWriteArrayList<>();
+        doAnswer(inv -> {
+            String asunto = inv.<Message>getArgument(0).getSubject();
+            if ("INSBOL".equals(asunto)) {
+                Thread.sleep(200);
+            }
+            asuntos.add(asunto);
+            return null;
+        }).when(procesamiento).procesar(any());
+
+        spool = iniciar();
+        spool.agregar(correo("INSBOL"));
+        spool.agregar(correo("INSPAG"));
+        spool.agregar(correo("GETVEN"));
+
+        verify(procesamiento, timeout(5000).times(3)).procesar(any());
+        assertThat(asuntos).containsExactly("INSBOL", "INSPAG", "GETVEN");
+    }
+
+    @Test
+    void noReprocesaLoConfirmadoAlReiniciar() throws Exception {
+        spool = iniciar();
+        spool.agregar(correo("LISBOL"));
+        verify(procesamiento, timeout(5000)).procesar(any());
+        esperarHasta(() -> offsetConfirmado() > 0);
+        spool.detener();
+
+        MessageProcessingService otro = mock(MessageProcessingService.class);
+        spool = iniciar(otro);
+        Thread.sleep(300);
+        verify(otro, never()).procesar(any());
+    }
+
+    private MailSpool iniciar() throws Exception {
+        return iniciar(procesamiento);
+    }
+
+    private MailSpool iniciar(MessageProcessingService servicio) throws Exception {
+        MailSpool nuevo = new MailSpool(servicio, emailService, new MetricsService());
+        ReflectionTestUtils.setField(nuevo, "habilitado", true);
+        ReflectionTestUtils.setField(nuevo, "directorio", carpeta.toString());
+        ReflectionTestUtils.setField(nuevo, "tamanoSegmento", 1 << 16);
+        ReflectionTestUtils.setField(nuevo, "fsyncCada", 1);
+        ReflectionTestUtils.setField(nuevo, "trabajadores", 4);
+        nuevo.iniciar();
+        return nuevo;
+    }
+
+    private int offsetConfirmado() throws Exception {
+        return ByteBuffer.wrap(Files.readAllBytes(carpeta.resolve("spool.cursor"))).getInt(4);
+    }
+
+    private void esperarHasta(Condicion condicion) throws Exception {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!condicion.cumple()) {
+            assertThat(System.currentTimeMillis()).isLessThan(limite);
+            Thread.sleep(20);
+        }
+    }
+
+    private interface Condicion {
+        boolean cumple() throws Exception;
+    }
+
+    private static MimeMessage correo(String asunto) throws Exception {
+        return correo(asunto, "cliente@example.com");
+    }
+
+    private static MimeMessage correo(String asunto, String remitente) throws Exception {
+        MimeMessage mensaje = new MimeMessage(Session.getInstance(new Properties()));
+        mensaje.setFrom(remitente);
+        mensaje.setSubject(asunto);
+        mensaje.setText("");
+        mensaje.saveChanges();
+        return mensaje;
+    }
+}
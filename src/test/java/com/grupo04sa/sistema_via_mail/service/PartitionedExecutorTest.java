@@ -0,0 +1,83 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PartitionedExecutorTest {
+
+    private final PartitionedExecutor ejecutor = new PartitionedExecutor("prueba", 4, 100, new MetricsService());
+
+    @AfterEach
+    void detener() {
+        ejecutor.detener();
+    }
+
+    @Test
+    void ejecutaEnOrdenLasTareasDeUnaMismaClave() throws Exception {
+        List<Integer> orden = new CopyOnWriteArrayList<>();
+        CountDownLatch terminadas = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            int numero = i;
+            ejecutor.ejecutar("cliente@example.com", () -> {
+                orden.add(numero);
+                terminadas.countDown();
+            });
+        }
+
+        assertThat(terminadas.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(orden).isSorted().hasSize(50);
+    }
+
+    @Test
+    void laParticionNoDistingueMayusculas() {
+        assertThat(ejecutor.particion("Admin@Empresa.com")).isEqualTo(ejecutor.particion("admin@empresa.com"));
+        assertThat(ejecutor.particion(null)).isZero();
+    }
+
+    @Test
+    void unaClaveBloqueadaNoDetieneAOtraParticion() throws Exception {
+        // primero@ y segundo@ caen en particiones distintas con 4 particiones
+        assertThat(ejecutor.particion("primero@example.com")).isNotEqualTo(ejecutor.particion("segundo@example.com"));
+
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch segundo = new CountDownLatch(1);
+        ejecutor.ejecutar("primero@example.com", () -> {
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ejecutor.ejecutar("segundo@example.com", segundo::countDown);
+
+        assertThat(segundo.await(5, TimeUnit.SECONDS)).isTrue();
+        liberar.countDown();
+    }
+
+    @Test
+    void detenerEsperaLasTareasPendientes() throws Exception {
+        AtomicInteger ejecutadas = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            ejecutor.ejecutar("cliente@example.com", () -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ejecutadas.incrementAndGet();
+            });
+        }
+
+        ejecutor.detener();
+
+        assertThat(ejecutadas).hasValue(10);
+    }
+}
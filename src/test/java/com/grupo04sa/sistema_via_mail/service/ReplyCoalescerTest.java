@@ -0,0 +1,76 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ReplyCoalescerTest {
+
+    private final EmailService emailService = mock(EmailService.class);
+    private ReplyCoalescer coalescer;
+
+    @BeforeEach
+    void configurar() {
+        coalescer = new ReplyCoalescer(emailService, new MetricsService());
+        ReflectionTestUtils.setField(coalescer, "habilitado", true);
+        ReflectionTestUtils.setField(coalescer, "retrasoMaximoMs", 60_000L);
+    }
+
+    @Test
+    void unaSolaRespuestaSeEnviaTalCual() {
+        coalescer.agregar("cliente@example.com", "Re: LISBOL", "Total: 0 boleto(s)");
+
+        coalescer.vaciar();
+
+        verify(emailService).enviarCorreo("cliente@example.com", "Re: LISBOL", "Total: 0 boleto(s)");
+    }
+
+    @Test
+    void agrupaLasRespuestasDeUnRemitenteEnOrden() {
+        coalescer.agregar("cliente@example.com", "Re: GETVIA", "Viaje 1");
+        coalescer.agregar("Cliente@Example.com", "Re: LISBOL", "Total: 0 boleto(s)");
+        coalescer.agregar("otro@example.com", "Re: HELP", "Ayuda");
+
+        coalescer.vaciar();
+
+        ArgumentCaptor<String> cuerpo = ArgumentCaptor.forClass(String.class);
+        verify(emailService).enviarCorreo(eq("cliente@example.com"), eq("2 respuestas - Sistema Via Mail"),
+                cuerpo.capture());
+        assertThat(cuerpo.getValue()).contains("Se agruparon 2 respuestas");
+        assertThat(cuerpo.getValue().indexOf("#1 Re: GETVIA")).isLessThan(cuerpo.getValue().indexOf("#2 Re: LISBOL"));
+        verify(emailService).enviarCorreo("otro@example.com", "Re: HELP", "Ayuda");
+    }
+
+    @Test
+    void vaciarDejaElMapaVacio() {
+        coalescer.agregar("cliente@example.com", "Re: LISBOL", "Total: 0 boleto(s)");
+        coalescer.vaciar();
+        coalescer.vaciar();
+
+        verify(emailService).enviarCorreo(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void soloEnviaAntesDelCierreLoQueAlcanzoElRetrasoMaximo() {
+        coalescer.agregar("cliente@example.com", "Re: LISBOL", "Total: 0 boleto(s)");
+
+        coalescer.vaciarVencidos();
+        verifyNoInteractions(emailService);
+
+        ReflectionTestUtils.setField(coalescer, "retrasoMaximoMs", 0L);
+        coalescer.vaciarVencidos();
+        verify(emailService).enviarCorreo("cliente@example.com", "Re: LISBOL", "Total: 0 boleto(s)");
+
+        coalescer.vaciar();
+        verify(emailService, never()).enviarCorreo(anyString(), eq("2 respuestas - Sistema Via Mail"), anyString());
+    }
+}
@@ -0,0 +1,112 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.grupo04sa.sistema_via_mail.repository.BoletoRepository;
+import com.grupo04sa.sistema_via_mail.service.SeatOccupancyIndex.Resultado;
+
+class SeatOccupancyIndexTest {
+
+    private static final Long VIAJE = 7L;
+
+    private final BoletoRepository boletoRepository = mock(BoletoRepository.class);
+    private SeatOccupancyIndex indice;
+
+    @BeforeEach
+    void configurar() {
+        indice = new SeatOccupancyIndex(boletoRepository, new MetricsService());
+        ReflectionTestUtils.setField(indice, "habilitado", true);
+        ReflectionTestUtils.setField(indice, "vigenciaMs", 60_000L);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void limpiar() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void reservaSinConsultarLaBdDespuesDeCargarElViaje() {
+        when(boletoRepository.findAsientosOcupadosByViaje(VIAJE)).thenReturn(List.of("3"));
+
+        assertThat(indice.reservar(VIAJE, "1", 40)).isEqualTo(Resultado.RESERVADO);
+        assertThat(indice.reservar(VIAJE, "1", 40)).isEqualTo(Resultado.OCUPADO);
+        assertThat(indice.reservar(VIAJE, "3", 40)).isEqualTo(Resultado.OCUPADO);
+        assertThat(indice.disponibles(VIAJE, 40)).isEqualTo(OptionalInt.of(38));
+
+        verify(boletoRepository, times(1)).findAsientosOcupadosByViaje(VIAJE);
+    }
+
+    @Test
+    void liberaElAsientoSiLaVentaNoSeConfirma() {
+        when(boletoRepository.findAsientosOcupadosByViaje(VIAJE)).thenReturn(List.of());
+
+        assertThat(indice.reservar(VIAJE, "5", 40)).isEqualTo(Resultado.RESERVADO);
+        terminar(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(indice.reservar(VIAJE, "5", 40)).isEqualTo(Resultado.RESERVADO);
+        assertThat(indice.disponibles(VIAJE, 40)).isEqualTo(OptionalInt.of(39));
+    }
+
+    @Test
+    void respetaElCupoDelViaje() {
+        when(boletoRepository.findAsientosOcupadosByViaje(VIAJE)).thenReturn(List.of("1", "2"));
+
+        assertThat(indice.reservar(VIAJE, "3", 2)).isEqualTo(Resultado.SIN_CUPO);
+        assertThat(indice.disponibles(VIAJE, 2)).isEqualTo(OptionalInt.of(0));
+    }
+
+    @Test
+    void unViajeConAsientosNoNumericosNoSeRecargaEnCadaVenta() {
+        when(boletoRepository.findAsientosOcupadosByViaje(VIAJE)).thenReturn(List.of("A1"));
+
+        for (String asiento : List.of("A2", "A3", "4")) {
+            assertThat(indice.reservar(VIAJE, asiento, 40)).isEqualTo(Resultado.NO_INDEXADO);
+            terminar(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertThat(indice.disponibles(VIAJE, 40)).isEmpty();
+
+        verify(boletoRepository, times(1)).findAsientosOcupadosByViaje(VIAJE);
+    }
+
+    @Test
+    void unAsientoNoNumericoEnUnViajeIndexadoLoRecarga() {
+        when(boletoRepository.findAsientosOcupadosByViaje(VIAJE)).thenReturn(List.of("1"));
+
+        assertThat(indice.reservar(VIAJE, "01", 40)).isEqualTo(Resultado.NO_INDEXADO);
+        terminar(TransactionSynchronization.STATUS_COMMITTED);
+        indice.disponibles(VIAJE, 40);
+
+        verify(boletoRepository, times(2)).findAsientosOcupadosByViaje(VIAJE);
+    }
+
+    @Test
+    void sinTransaccionNoUsaElIndice() {
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(indice.reservar(VIAJE, "1", 40)).isEqualTo(Resultado.NO_INDEXADO);
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    private void terminar(int estado) {
+        List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        sincronizaciones.forEach(sincronizacion -> sincronizacion.afterCompletion(estado));
+    }
+}
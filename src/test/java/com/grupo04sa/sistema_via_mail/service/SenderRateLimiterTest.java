@@ -0,0 +1,97 @@
+package com.grupo04sa.sistema_via_mail.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.grupo04sa.sistema_via_mail.model.Usuario;
+import com.grupo04sa.sistema_via_mail.repository.UsuarioRepository;
+
+class SenderRateLimiterTest {
+
+    private final UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+    private SenderRateLimiter limiter;
+
+    @BeforeEach
+    void configurar() {
+        when(usuarioRepository.findByCorreoAndActive(anyString())).thenReturn(Optional.empty());
+        limiter = new SenderRateLimiter(usuarioRepository, new MetricsService());
+        ReflectionTestUtils.setField(limiter, "habilitado", true);
+        ReflectionTestUtils.setField(limiter, "capacidadAdmin", 60);
+        ReflectionTestUtils.setField(limiter, "porMinutoAdmin", 0);
+        ReflectionTestUtils.setField(limiter, "capacidadSecretaria", 40);
+        ReflectionTestUtils.setField(limiter, "porMinutoSecretaria", 0);
+        ReflectionTestUtils.setField(limiter, "capacidadCliente", 2);
+        ReflectionTestUtils.setField(limiter, "porMinutoCliente", 0);
+        ReflectionTestUtils.setField(limiter, "quantum", 1);
+    }
+
+    @Test
+    void difiereLoQueExcedeLaCapacidadDelRemitente() {
+        List<String> admitidos = planificar(List.of("a#1", "a#2", "a#3", "a#4"), 0);
+
+        assertThat(admitidos).containsExactly("a#1", "a#2");
+        // Sin recarga el remitente sigue sin cupo en el ciclo siguiente
+        assertThat(planificar(List.of("a#3", "a#4"), 0)).isEmpty();
+    }
+
+    @Test
+    void alternaEntreRemitentesConservandoElOrdenDeCadaUno() {
+        List<String> admitidos = planificar(List.of("a#1", "a#2", "b#1", "c#1", "b#2"), 0);
+
+        assertThat(admitidos).containsExactly("a#1", "b#1", "c#1", "a#2", "b#2");
+    }
+
+    @Test
+    void elTopeSeAplicaSobreLosAdmitidos() {
+        // "a" excede su límite; el tope no debe quedar ocupado por sus diferidos
+        List<String> admitidos = planificar(List.of("a#1", "a#2", "a#3", "a#4", "b#1", "c#1"), 3);
+
+        assertThat(admitidos).containsExactly("a#1", "b#1", "c#1");
+        // Lo que no entró en el tope no consumió cupo
+        assertThat(planificar(List.of("a#2"), 0)).containsExactly("a#2");
+    }
+
+    @Test
+    void sinLimiteSoloAplicaElTope() {
+        ReflectionTestUtils.setField(limiter, "habilitado", false);
+
+        assertThat(planificar(List.of("a#1", "a#2", "a#3"), 2)).containsExactly("a#1", "a#2");
+        assertThat(planificar(List.of("a#1", "a#2", "a#3"), 0)).hasSize(3);
+    }
+
+    @Test
+    void buscaElRolConLaDireccionOriginal() {
+        Usuario admin = new Usuario();
+        admin.setRol("Admin");
+        when(usuarioRepository.findByCorreoAndActive("Admin@Empresa.com")).thenReturn(Optional.of(admin));
+
+        List<String> correos = List.of("Admin@Empresa.com#1", "Admin@Empresa.com#2", "Admin@Empresa.com#3",
+                "Admin@Empresa.com#4");
+
+        assertThat(planificar(correos, 0)).hasSize(4);
+        verify(usuarioRepository).findByCorreoAndActive("Admin@Empresa.com");
+    }
+
+    @Test
+    void unCostoMayorQueLaCapacidadConsumeElBaldeLleno() {
+        // Un LOTE que cuesta más que la capacidad del cliente (2) no queda diferido para siempre
+        List<String> admitidos = limiter.planificar(List.of("a#lote", "a#2"),
+                correo -> correo.substring(0, correo.indexOf('#')), correo -> correo.endsWith("lote") ? 10 : 1, 0);
+
+        assertThat(admitidos).containsExactly("a#lote");
+    }
+
+    private List<String> planificar(List<String> correos, int maximo) {
+        return limiter.planificar(correos, correo -> correo.substring(0, correo.indexOf('#')), correo -> 1, maximo);
+    }
+}